@@ -0,0 +1,129 @@
+package com.example.pubsub;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BinaryMessage extends Message {
+    private final ByteBuffer buffer;
+    private final ByteBuffer readOnlyView;
+    private final MessageBufferPool pool;
+    private final AtomicInteger refCount;
+    private volatile String topic;
+    private volatile String key;
+
+    BinaryMessage(ByteBuffer buffer, MessageBufferPool pool) {
+        super(null, null);
+        this.buffer = buffer;
+        this.readOnlyView = buffer.asReadOnlyBuffer();
+        this.pool = pool;
+        this.refCount = new AtomicInteger(0);
+    }
+
+    // Wraps an existing buffer without pooling; the message only lives as long as the buffer does
+    public static BinaryMessage wrap(String topic, ByteBuffer payload) {
+        BinaryMessage message = new BinaryMessage(payload.slice(), null);
+        message.reset(topic);
+        message.readOnlyView.limit(payload.remaining());
+        return message;
+    }
+
+    void reset(String topic) {
+        this.topic = topic;
+        this.key = null;
+        buffer.clear();
+        readOnlyView.clear();
+        refCount.set(1);
+    }
+
+    // Producer side: fill the buffer, then call seal() before publishing
+    public ByteBuffer writableBuffer() {
+        return buffer;
+    }
+
+    public BinaryMessage seal() {
+        readOnlyView.limit(buffer.position());
+        return this;
+    }
+
+    public BinaryMessage withKey(String key) {
+        this.key = key;
+        return this;
+    }
+
+    @Override
+    public String getTopic() {
+        return topic;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    public int getLength() {
+        return readOnlyView.limit();
+    }
+
+    // Absolute reads go straight to the shared buffer and are safe from any number of subscribers
+    public byte getByte(int index) {
+        return readOnlyView.get(index);
+    }
+
+    public int getInt(int index) {
+        return readOnlyView.getInt(index);
+    }
+
+    public long getLong(int index) {
+        return readOnlyView.getLong(index);
+    }
+
+    public double getDouble(int index) {
+        return readOnlyView.getDouble(index);
+    }
+
+    public void getBytes(int index, byte[] dst, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = readOnlyView.get(index + i);
+        }
+    }
+
+    // Independent position/limit over the same memory; never copies the payload
+    public ByteBuffer getPayload() {
+        return readOnlyView.duplicate();
+    }
+
+    // Decodes on demand for subscribers that still want text
+    @Override
+    public String getContent() {
+        byte[] bytes = new byte[getLength()];
+        getBytes(0, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getRefCount() {
+        return refCount.get();
+    }
+
+    @Override
+    public void retain(int count) {
+        refCount.addAndGet(count);
+    }
+
+    @Override
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            if (pool != null) {
+                pool.recycle(this);
+            }
+        } else if (remaining < 0) {
+            throw new IllegalStateException("BinaryMessage released more times than retained");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryMessage{topic='" + topic + "', length=" + getLength() + "}";
+    }
+}
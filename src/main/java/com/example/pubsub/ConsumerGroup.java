@@ -0,0 +1,190 @@
+package com.example.pubsub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// One logical consumer scaled over several members. The topic is split into partitions by message
+// key; every partition has its own ordered lane and is owned by exactly one member at a time.
+// A member owning several partitions still receives onMessage from one thread at a time.
+// A partition without an owner, while the group rebalances or after its last member left, drops
+// what it dequeues rather than holding it, and closing the group drops what the partitions still
+// hold; getDropped() counts both.
+public class ConsumerGroup implements Subscriber {
+    private final String name;
+    private final String topic;
+    private final SubscriberLane[] partitions;
+    private final List<Member> members;
+    private final AtomicInteger unkeyedCounter;
+    private final LongAdder dropped;
+    // Partition -> owning member, replaced wholesale on every rebalance
+    private volatile Member[] owners;
+
+    // Partitions always block the publisher when full: a group shares work, so it must not lose any
+    ConsumerGroup(String name, String topic, int partitionCount, int partitionCapacity) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("Partition count must be positive");
+        }
+        this.name = name;
+        this.topic = topic;
+        this.partitions = new SubscriberLane[partitionCount];
+        this.members = new ArrayList<>();
+        this.unkeyedCounter = new AtomicInteger(0);
+        this.dropped = new LongAdder();
+        this.owners = new Member[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new SubscriberLane(new Partition(i), partitionCapacity,
+                SlowConsumerPolicy.BLOCK, 0, null);
+        }
+    }
+
+    void start() {
+        for (SubscriberLane partition : partitions) {
+            partition.start();
+        }
+    }
+
+    synchronized boolean join(Subscriber member) {
+        if (indexOf(member) >= 0) {
+            return false;
+        }
+        members.add(new Member(member));
+        rebalance();
+        return true;
+    }
+
+    synchronized boolean leave(Subscriber member) {
+        int index = indexOf(member);
+        if (index < 0) {
+            return false;
+        }
+        members.remove(index);
+        rebalance();
+        return true;
+    }
+
+    private int indexOf(Subscriber member) {
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i).subscriber == member) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    synchronized boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    // Round-robin assignment; a partition keeps its lane across rebalances so per-key order holds
+    private void rebalance() {
+        Member[] next = new Member[partitions.length];
+        if (!members.isEmpty()) {
+            for (int i = 0; i < next.length; i++) {
+                next[i] = members.get(i % members.size());
+            }
+        }
+        owners = next;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        message.retain(1);
+        partitions[partitionFor(message.getKey())].deliver(message);
+    }
+
+    public int partitionFor(String key) {
+        if (key == null) {
+            return (unkeyedCounter.getAndIncrement() & Integer.MAX_VALUE) % partitions.length;
+        }
+        return (key.hashCode() & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    @Override
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    public synchronized List<Subscriber> getMembers() {
+        List<Subscriber> snapshot = new ArrayList<>(members.size());
+        for (Member member : members) {
+            snapshot.add(member.subscriber);
+        }
+        return snapshot;
+    }
+
+    public List<Integer> getAssignment(Subscriber member) {
+        Member[] current = owners;
+        List<Integer> assigned = new ArrayList<>();
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != null && current[i].subscriber == member) {
+                assigned.add(i);
+            }
+        }
+        return assigned;
+    }
+
+    // Messages dequeued by a partition that had no owner, plus those pending when the group closed
+    public long getDropped() {
+        long total = dropped.sum();
+        for (SubscriberLane partition : partitions) {
+            total += partition.getDropped();
+        }
+        return total;
+    }
+
+    public SubscriberLane getPartitionLane(int partition) {
+        return partitions[partition];
+    }
+
+    void close() {
+        for (SubscriberLane partition : partitions) {
+            partition.close();
+        }
+    }
+
+    private final class Partition implements Subscriber {
+        private final int index;
+
+        Partition(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            Member owner = owners[index];
+            if (owner != null) {
+                owner.deliver(message);
+            } else {
+                dropped.increment();
+            }
+        }
+
+        @Override
+        public String getTopic() {
+            return topic + "[" + name + "-" + index + "]";
+        }
+    }
+
+    // Partition lanes run on their own threads; the member's monitor keeps its callbacks serial
+    private static final class Member {
+        final Subscriber subscriber;
+
+        Member(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        synchronized void deliver(Message message) {
+            subscriber.onMessage(message);
+        }
+    }
+}
@@ -1,20 +1,62 @@
 package com.example.pubsub;
 
 import com.example.pubsub.model.*;
+import com.example.pubsub.latency.BatchStageWorker;
+import com.example.pubsub.latency.Clocks;
+import com.example.pubsub.latency.OffHeapTradeRing;
 import com.example.pubsub.latency.RingBuffer;
+import com.example.pubsub.latency.Sequence;
+import com.example.pubsub.latency.SequenceBarrier;
+import com.example.pubsub.latency.WaitStrategy;
+import com.example.pubsub.latency.YieldingWaitStrategy;
+import com.example.pubsub.monitoring.Counter;
+import com.example.pubsub.monitoring.Gauge;
 import com.example.pubsub.monitoring.LatencyMonitor;
+import com.example.pubsub.monitoring.LatencyTimer;
+import com.example.pubsub.monitoring.MetricsExporter;
+import com.example.pubsub.monitoring.MetricsRegistry;
+import com.example.pubsub.compliance.AuditJournal;
 import com.example.pubsub.compliance.AuditLogger;
 import com.example.pubsub.reliability.CircuitBreaker;
+import org.HdrHistogram.Histogram;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 import java.time.Instant;
 
 public class HighPerformanceTradeProcessor implements AutoCloseable {
-    private final RingBuffer validationBuffer;
-    private final RingBuffer pricingBuffer;
-    private final RingBuffer riskBuffer;
-    private final RingBuffer executionBuffer;
+    // One ring for the whole pipeline: each stage reads the slot in place once the stage before it is done.
+    // The ring holds either pooled MarketTrades or, with offHeap, TradeRecord slots in a direct buffer.
+    private static final double MAX_NOTIONAL = 50_000_000.0;
+    private static final long MAX_NOTIONAL_FIXED = TradeRecord.toFixedPrice(MAX_NOTIONAL);
+    private static final Counter PROCESSED = LatencyMonitor.counter("processed");
+    private static final Counter EXECUTED = LatencyMonitor.counter("executed");
+    private static final Counter REJECTED = LatencyMonitor.counter("rejected");
+    private static final Counter ERRORS = LatencyMonitor.counter("errors");
+    private static final PipelineStage[] STAGES = PipelineStage.values();
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
+    
+    // Exactly one ring is set; tradePool only goes with ringBuffer
+    private final RingBuffer ringBuffer;
+    private final MarketTradePool tradePool;
+    private final OffHeapTradeRing offHeapRing;
+    // Producer flyweights: one re-pointed at each claimed slot, and one over a private heap slot where a
+    // trade that finds the ring full is built for its audit event
+    private final ThreadLocal<TradeRecord> producerRecords = ThreadLocal.withInitial(TradeRecord::new);
+    private final ThreadLocal<TradeRecord> rejectedRecords = ThreadLocal.withInitial(
+        () -> new TradeRecord().wrap(ByteBuffer.allocate(TradeRecord.SLOT_SIZE), 0));
+    private final Sequence[] validationSequences;
+    private final Sequence[] pricingSequences;
+    private final Sequence[] riskSequences;
+    private final Sequence[] executionSequences;
+    private final SequenceBarrier validationBarrier;
+    private final SequenceBarrier pricingBarrier;
+    private final SequenceBarrier riskBarrier;
+    private final SequenceBarrier executionBarrier;
     
     private final ExecutorService validationPool;
     private final ExecutorService pricingPool;
@@ -22,16 +64,66 @@ public class HighPerformanceTradeProcessor implements AutoCloseable {
     private final ExecutorService executionPool;
     
     private final AuditLogger auditLogger;
+    private final Thread auditThread;
     private final CircuitBreaker circuitBreaker;
-    private final AtomicLong sequence;
-    private volatile boolean running;
+    private final List<Gauge> gauges;
+    // Per-trade trace, recorded as each executed trade completes: time queued before and spent in
+    // each stage, then submit-to-execution, raw and corrected for coordinated omission. Rejected
+    // trades only pass through the later stages, so they are kept out of these and timed from
+    // submit to release in total_rejected.
+    private final LatencyTimer[] queueWaitTimers;
+    private final LatencyTimer[] serviceTimers;
+    private final LatencyTimer totalTimer;
+    private final LatencyTimer correctedTotalTimer;
+    private final LatencyTimer rejectedTotalTimer;
+    private final long expectedIntervalNanos;
     
     public HighPerformanceTradeProcessor(int bufferSize, int poolSize) {
-        // Initialize ring buffers - Fixed comments
-        this.validationBuffer = new RingBuffer(bufferSize);
-        this.pricingBuffer = new RingBuffer(bufferSize);
-        this.riskBuffer = new RingBuffer(bufferSize);
-        this.executionBuffer = new RingBuffer(bufferSize);
+        this(bufferSize, poolSize, new YieldingWaitStrategy());
+    }
+    
+    // Use BusySpinWaitStrategy on dedicated cores, ParkingWaitStrategy or BlockingWaitStrategy on shared hosts
+    public HighPerformanceTradeProcessor(int bufferSize, int poolSize, WaitStrategy waitStrategy) {
+        this(bufferSize, poolSize, waitStrategy, Long.getLong("pubsub.latency.expected.interval.nanos", 0));
+    }
+    
+    // expectedIntervalNanos is the intended gap between submissions; end-to-end latencies longer than
+    // it are back-filled into total_corrected with the trades a stalled producer would have sent.
+    // Zero leaves total_corrected empty. -Dpubsub.ring.offheap=true selects the off-heap ring.
+    public HighPerformanceTradeProcessor(int bufferSize, int poolSize, WaitStrategy waitStrategy,
+                                         long expectedIntervalNanos) {
+        this(bufferSize, poolSize, waitStrategy, expectedIntervalNanos, Boolean.getBoolean("pubsub.ring.offheap"));
+    }
+    
+    // offHeap keeps live trades in OffHeapTradeRing slots, out of reach of the GC, instead of pooled MarketTrades
+    public HighPerformanceTradeProcessor(int bufferSize, int poolSize, WaitStrategy waitStrategy,
+                                         long expectedIntervalNanos, boolean offHeap) {
+        // Initialize the ring and chain the stages, one sequence per worker.
+        // Each stage waits on every worker of the previous one; producers wait on execution.
+        this.validationSequences = newSequences(poolSize);
+        this.pricingSequences = newSequences(poolSize);
+        this.riskSequences = newSequences(poolSize);
+        this.executionSequences = newSequences(poolSize);
+        if (offHeap) {
+            this.ringBuffer = null;
+            this.tradePool = null;
+            this.offHeapRing = new OffHeapTradeRing(bufferSize, waitStrategy);
+            this.validationBarrier = offHeapRing.newBarrier();
+            this.pricingBarrier = offHeapRing.newBarrier(validationSequences);
+            this.riskBarrier = offHeapRing.newBarrier(pricingSequences);
+            this.executionBarrier = offHeapRing.newBarrier(riskSequences);
+            offHeapRing.addGatingSequences(executionSequences);
+        } else {
+            this.ringBuffer = new RingBuffer(bufferSize, waitStrategy);
+            // Enough trades for every ring slot plus as many again claimed by producers but not yet published
+            this.tradePool = new MarketTradePool(ringBuffer.capacity() * 2);
+            this.offHeapRing = null;
+            this.validationBarrier = ringBuffer.newBarrier();
+            this.pricingBarrier = ringBuffer.newBarrier(validationSequences);
+            this.riskBarrier = ringBuffer.newBarrier(pricingSequences);
+            this.executionBarrier = ringBuffer.newBarrier(riskSequences);
+            ringBuffer.addGatingSequences(executionSequences);
+        }
         
         // Initialize thread pools with affinity
         this.validationPool = Executors.newFixedThreadPool(poolSize);
@@ -42,38 +134,116 @@ public class HighPerformanceTradeProcessor implements AutoCloseable {
         // Initialize support components
         this.auditLogger = new AuditLogger();
         this.circuitBreaker = new CircuitBreaker(10, 5000); // 10 failures, 5s reset
-        this.sequence = new AtomicLong(0);
-        this.running = true;
+        
+        MetricsRegistry registry = LatencyMonitor.registry();
+        this.queueWaitTimers = new LatencyTimer[STAGES.length];
+        this.serviceTimers = new LatencyTimer[STAGES.length];
+        for (PipelineStage stage : STAGES) {
+            queueWaitTimers[stage.ordinal()] = registry.registerTimer("queue_wait", stage.getMetricName());
+            serviceTimers[stage.ordinal()] = registry.registerTimer("service", stage.getMetricName());
+        }
+        this.totalTimer = LatencyMonitor.stage("total");
+        this.correctedTotalTimer = registry.registerTimer("total_corrected");
+        this.rejectedTotalTimer = registry.registerTimer("total_rejected");
+        this.expectedIntervalNanos = expectedIntervalNanos;
         
         // Start audit logger
-        Thread auditThread = new Thread(auditLogger);
+        this.auditThread = new Thread(auditLogger);
         auditThread.setName("audit-logger");
         auditThread.start();
         
         // Start processing chains
         startProcessingChains(poolSize);
+        this.gauges = registerGauges(LatencyMonitor.registry());
+    }
+    
+    // Sampled by exporters on their own threads; every source here is safe to read concurrently
+    private List<Gauge> registerGauges(MetricsRegistry registry) {
+        List<Gauge> registered = new ArrayList<>();
+        registered.add(registry.registerGauge("ring_depth", this::ringDepth));
+        if (tradePool != null) {
+            registered.add(registry.registerGauge("trade_pool_available", tradePool::getAvailable));
+            registered.add(registry.registerGauge("trade_pool_misses", tradePool::getMisses));
+        }
+        // 0 closed, 1 open, 2 half-open
+        registered.add(registry.registerGauge("circuit_breaker_state", () -> circuitBreaker.getState().ordinal()));
+        registered.add(registry.registerGauge("audit_queue_depth", auditLogger::getQueueDepth));
+        registered.add(registry.registerGauge("audit_backpressured", auditLogger::getBackpressured));
+        registered.add(registry.registerGauge("audit_write_failures", auditLogger::getWriteFailures));
+        registered.add(registry.registerGauge("audit_lost_events", auditLogger::getLostEvents));
+        registered.add(registry.registerGauge("audit_segments", auditLogger::getSegments));
+        // Written by the audit thread without fences; may lag by a batch
+        registered.add(registry.registerGauge("audit_journal_events", () -> auditLogger.getJournal().getEvents()));
+        registered.add(registry.registerGauge("audit_journal_syncs", () -> auditLogger.getJournal().getSyncs()));
+        return registered;
+    }
+    
+    private long ringDepth() {
+        return offHeapRing != null
+            ? offHeapRing.capacity() - offHeapRing.remainingCapacity()
+            : ringBuffer.capacity() - ringBuffer.remainingCapacity();
+    }
+    
+    private static Sequence[] newSequences(int count) {
+        Sequence[] sequences = new Sequence[count];
+        for (int i = 0; i < count; i++) {
+            sequences[i] = new Sequence();
+        }
+        return sequences;
     }
     
     private void startProcessingChains(int poolSize) {
-        // Start validation workers
+        // Worker i of every stage owns the slots where sequence % poolSize == i
+        if (offHeapRing != null) {
+            for (int i = 0; i < poolSize; i++) {
+                validationPool.submit(new BatchStageWorker("validation", offHeapRing, validationBarrier,
+                    validationSequences[i], i, poolSize, (record, seq) -> runStage(PipelineStage.VALIDATION, record)));
+                pricingPool.submit(new BatchStageWorker("pricing", offHeapRing, pricingBarrier,
+                    pricingSequences[i], i, poolSize, (record, seq) -> runStage(PipelineStage.PRICING, record)));
+                riskPool.submit(new BatchStageWorker("risk", offHeapRing, riskBarrier,
+                    riskSequences[i], i, poolSize, (record, seq) -> runStage(PipelineStage.RISK, record)));
+                executionPool.submit(new BatchStageWorker("execution", offHeapRing, executionBarrier,
+                    executionSequences[i], i, poolSize, (record, seq) -> completeTrade(record)));
+            }
+            return;
+        }
         for (int i = 0; i < poolSize; i++) {
-            validationPool.submit(() -> {
-                while (running) {
-                    long seq = sequence.get();
-                    MarketTrade trade = validationBuffer.poll(seq);
-                    if (trade != null) {
-                        processValidation(trade);
-                    }
-                }
-            });
+            validationPool.submit(new BatchStageWorker("validation", ringBuffer, validationBarrier,
+                validationSequences[i], i, poolSize, (trade, seq) -> runStage(PipelineStage.VALIDATION, trade)));
+            pricingPool.submit(new BatchStageWorker("pricing", ringBuffer, pricingBarrier,
+                pricingSequences[i], i, poolSize, (trade, seq) -> runStage(PipelineStage.PRICING, trade)));
+            riskPool.submit(new BatchStageWorker("risk", ringBuffer, riskBarrier,
+                riskSequences[i], i, poolSize, (trade, seq) -> runStage(PipelineStage.RISK, trade)));
+            executionPool.submit(new BatchStageWorker("execution", ringBuffer, executionBarrier,
+                executionSequences[i], i, poolSize, (trade, seq) -> completeTrade(trade)));
+        }
+    }
+    
+    // Stamps the trade's hop around the stage's work. A slot only reaches the next stage when its
+    // worker publishes the whole batch, so that hold counts as queue wait, not service time.
+    private void runStage(PipelineStage stage, MarketTrade trade) {
+        trade.markHopStart(stage, System.nanoTime());
+        try {
+            switch (stage) {
+                case VALIDATION:
+                    processValidation(trade);
+                    break;
+                case PRICING:
+                    processPricing(trade);
+                    break;
+                case RISK:
+                    processRisk(trade);
+                    break;
+                case EXECUTION:
+                    processExecution(trade);
+                    break;
+            }
+        } finally {
+            trade.markHopEnd(stage, System.nanoTime());
         }
-        
-        // Similar for other stages...
-        // (Pricing, Risk, Execution stages would be implemented similarly)
     }
     
     private void processValidation(MarketTrade trade) {
-        long startTime = System.nanoTime();
         try {
             if (!circuitBreaker.allowRequest()) {
                 trade.reject("Circuit breaker open");
@@ -83,15 +253,13 @@ public class HighPerformanceTradeProcessor implements AutoCloseable {
             // Validate trade
             if (isValidTrade(trade)) {
                 trade.setStatus(TradeStatus.VALIDATED);
-                pricingBuffer.offer(trade, sequence.incrementAndGet());
                 circuitBreaker.recordSuccess();
             } else {
                 trade.reject("Validation failed");
             }
             
             // Record metrics
-            LatencyMonitor.recordLatency("validation", startTime);
-            LatencyMonitor.incrementCounter("processed");
+            PROCESSED.increment();
             
             // Audit logging
             auditLogger.logTradeEvent(trade, "VALIDATION", 
@@ -99,55 +267,313 @@ public class HighPerformanceTradeProcessor implements AutoCloseable {
             
         } catch (Exception e) {
             circuitBreaker.recordFailure();
-            LatencyMonitor.incrementCounter("errors");
+            ERRORS.increment();
             trade.reject("Validation error: " + e.getMessage());
             auditLogger.logTradeEvent(trade, "ERROR", e.getMessage());
         }
     }
     
+    // Later stages only act on trades the previous stage passed; rejected slots just flow through
+    private void processPricing(MarketTrade trade) {
+        if (trade.getStatus() != TradeStatus.VALIDATED) {
+            return;
+        }
+        trade.setStatus(TradeStatus.PRICED);
+    }
+    
+    private void processRisk(MarketTrade trade) {
+        if (trade.getStatus() != TradeStatus.PRICED) {
+            return;
+        }
+        if (trade.getPrice() * trade.getQuantity() > MAX_NOTIONAL) {
+            trade.reject("Notional limit exceeded");
+            auditLogger.logTradeEvent(trade, "RISK", "FAILED");
+            REJECTED.increment();
+            return;
+        }
+        trade.setStatus(TradeStatus.RISK_CHECKED);
+    }
+    
+    private void processExecution(MarketTrade trade) {
+        if (trade.getStatus() != TradeStatus.RISK_CHECKED) {
+            return;
+        }
+        trade.setStatus(TradeStatus.EXECUTED);
+        EXECUTED.increment();
+        auditLogger.logTradeEvent(trade, "EXECUTION", "SUCCESS");
+    }
+    
+    // Execution is the last stage to touch a slot, so ownership ends here for every trade,
+    // rejected or not. Audit events copy what they need before this point.
+    private void completeTrade(MarketTrade trade) {
+        try {
+            runStage(PipelineStage.EXECUTION, trade);
+            recordTrace(trade);
+        } finally {
+            trade.release();
+        }
+    }
+    
+    // The trade is written straight into its claimed slot; nothing is allocated per trade
+    private void submitRecord(int symbolId, double price, int quantity, int venueId, OrderType orderType,
+                              int counterpartyId, int traderId, int accountId) {
+        long sequence = offHeapRing.tryNext();
+        long priceFixed = TradeRecord.toFixedPrice(price);
+        if (sequence < 0) {
+            TradeRecord record = rejectedRecords.get().init(symbolId, priceFixed, quantity, venueId, orderType,
+                counterpartyId, traderId, accountId, Clocks.nanos());
+            record.reject(TradeRecord.REJECT_CAPACITY, Clocks.nanos());
+            auditLogger.logTradeEvent(record, "REJECTED", "Buffer full");
+            REJECTED.increment();
+            return;
+        }
+        offHeapRing.wrap(sequence, producerRecords.get()).init(symbolId, priceFixed, quantity, venueId, orderType,
+            counterpartyId, traderId, accountId, Clocks.nanos());
+        offHeapRing.publish(sequence);
+    }
+    
+    private void recordTrace(TradeTrace trace) {
+        long ingress = trace.getIngressNanos();
+        if (trace.getStatus() != TradeStatus.EXECUTED) {
+            rejectedTotalTimer.record(trace.getHopEndNanos(PipelineStage.EXECUTION) - ingress);
+            return;
+        }
+        long previousEnd = ingress;
+        for (PipelineStage stage : STAGES) {
+            long start = trace.getHopStartNanos(stage);
+            long end = trace.getHopEndNanos(stage);
+            queueWaitTimers[stage.ordinal()].record(start - previousEnd);
+            serviceTimers[stage.ordinal()].record(end - start);
+            previousEnd = end;
+        }
+        long total = previousEnd - ingress;
+        totalTimer.record(total);
+        if (expectedIntervalNanos > 0) {
+            correctedTotalTimer.record(total, expectedIntervalNanos);
+        }
+    }
+    
     private boolean isValidTrade(MarketTrade trade) {
         return trade != null 
-            && trade.getSymbol() != null 
-            && !trade.getSymbol().isEmpty()
+            && trade.getSymbolId() != InternDictionary.NULL_ID
             && trade.getPrice() > 0 
             && trade.getQuantity() > 0
-            && trade.getTrader() != null
-            && trade.getAccount() != null;
+            && trade.getTraderId() != InternDictionary.NULL_ID
+            && trade.getAccountId() != InternDictionary.NULL_ID;
+    }
+    
+    // Off-heap counterparts of the stages above. Records are read and updated in place in the ring;
+    // status times are epoch nanos from Clocks, like MarketTrade's.
+    private void runStage(PipelineStage stage, TradeRecord record) {
+        record.markHopStart(stage, System.nanoTime());
+        try {
+            switch (stage) {
+                case VALIDATION:
+                    processValidation(record);
+                    break;
+                case PRICING:
+                    processPricing(record);
+                    break;
+                case RISK:
+                    processRisk(record);
+                    break;
+                case EXECUTION:
+                    processExecution(record);
+                    break;
+            }
+        } finally {
+            record.markHopEnd(stage, System.nanoTime());
+        }
+    }
+    
+    private void processValidation(TradeRecord record) {
+        try {
+            if (!circuitBreaker.allowRequest()) {
+                record.reject(TradeRecord.REJECT_CIRCUIT_OPEN, Clocks.nanos());
+                return;
+            }
+            
+            if (isValidTrade(record)) {
+                record.setStatus(TradeStatus.VALIDATED, Clocks.nanos());
+                circuitBreaker.recordSuccess();
+            } else {
+                record.reject(TradeRecord.REJECT_VALIDATION, Clocks.nanos());
+            }
+            
+            PROCESSED.increment();
+            auditLogger.logTradeEvent(record, "VALIDATION", 
+                record.getStatus() == TradeStatus.VALIDATED ? "SUCCESS" : "FAILED");
+            
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            ERRORS.increment();
+            record.reject(TradeRecord.REJECT_ERROR, Clocks.nanos());
+            auditLogger.logTradeEvent(record, "ERROR", e.getMessage());
+        }
+    }
+    
+    private void processPricing(TradeRecord record) {
+        if (record.getStatus() != TradeStatus.VALIDATED) {
+            return;
+        }
+        record.setStatus(TradeStatus.PRICED, Clocks.nanos());
+    }
+    
+    private void processRisk(TradeRecord record) {
+        if (record.getStatus() != TradeStatus.PRICED) {
+            return;
+        }
+        if (record.getNotionalFixed() > MAX_NOTIONAL_FIXED) {
+            record.reject(TradeRecord.REJECT_NOTIONAL, Clocks.nanos());
+            auditLogger.logTradeEvent(record, "RISK", "FAILED");
+            REJECTED.increment();
+            return;
+        }
+        record.setStatus(TradeStatus.RISK_CHECKED, Clocks.nanos());
+    }
+    
+    private void processExecution(TradeRecord record) {
+        if (record.getStatus() != TradeStatus.RISK_CHECKED) {
+            return;
+        }
+        record.setStatus(TradeStatus.EXECUTED, Clocks.nanos());
+        EXECUTED.increment();
+        auditLogger.logTradeEvent(record, "EXECUTION", "SUCCESS");
+    }
+    
+    // Nothing to release: the slot goes back to producers when the execution worker publishes its batch
+    private void completeTrade(TradeRecord record) {
+        runStage(PipelineStage.EXECUTION, record);
+        recordTrace(record);
+    }
+    
+    private boolean isValidTrade(TradeRecord record) {
+        return record.getSymbolId() != InternDictionary.NULL_ID
+            && record.getPriceFixed() > 0 
+            && record.getQuantity() > 0
+            && record.getTraderId() != InternDictionary.NULL_ID
+            && record.getAccountId() != InternDictionary.NULL_ID;
     }
     
     public void submitTrade(String symbol, double price, int quantity, 
                           String venue, OrderType orderType, String counterparty,
                           String trader, String account) {
-        MarketTrade trade = MarketTrade.create(symbol, price, quantity, 
-                                             venue, orderType, counterparty,
-                                             trader, account);
+        // Ingestion edge: strings become dictionary ids here and are only decoded again for output
+        if (offHeapRing != null) {
+            submitRecord(TradeDictionaries.SYMBOLS.intern(symbol), price, quantity,
+                TradeDictionaries.VENUES.intern(venue), orderType,
+                TradeDictionaries.COUNTERPARTIES.intern(counterparty),
+                TradeDictionaries.TRADERS.intern(trader), TradeDictionaries.ACCOUNTS.intern(account));
+            return;
+        }
+        MarketTrade trade = tradePool.acquire(TradeDictionaries.SYMBOLS.intern(symbol), price, quantity, 
+                                             TradeDictionaries.VENUES.intern(venue), orderType,
+                                             TradeDictionaries.COUNTERPARTIES.intern(counterparty),
+                                             TradeDictionaries.TRADERS.intern(trader),
+                                             TradeDictionaries.ACCOUNTS.intern(account));
                                              
-        long seq = sequence.incrementAndGet();
-        if (!validationBuffer.offer(trade, seq)) {
+        // Once offered, the ring owns the trade; on rejection it never left this thread
+        if (!ringBuffer.offer(trade)) {
             trade.reject("System at capacity");
             auditLogger.logTradeEvent(trade, "REJECTED", "Buffer full");
-            LatencyMonitor.incrementCounter("rejected");
+            REJECTED.increment();
+            trade.release();
         }
     }
     
     @Override
     public void close() {
-        running = false;
+        // Alerting stops the workers at their next wait, so let every published trade reach the end
+        // of the pipeline first; anything still in the ring after the timeout is never executed or audited
+        long abandoned = awaitDrained(TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT_SECONDS));
+        if (abandoned > 0) {
+            System.err.printf("Ring not drained after %ds; abandoning %d sequences%n",
+                SHUTDOWN_TIMEOUT_SECONDS, abandoned);
+        }
+        validationBarrier.alert();
+        pricingBarrier.alert();
+        riskBarrier.alert();
+        executionBarrier.alert();
         validationPool.shutdown();
         pricingPool.shutdown();
         riskPool.shutdown();
         executionPool.shutdown();
-        auditLogger.stop();
+        try {
+            // Workers finishing their last batch still log audit events, so the writer has to outlive them
+            awaitTermination(validationPool, "validation");
+            awaitTermination(pricingPool, "pricing");
+            awaitTermination(riskPool, "risk");
+            awaitTermination(executionPool, "execution");
+            auditLogger.stop();
+            auditThread.join();
+        } catch (InterruptedException e) {
+            auditLogger.stop();
+            Thread.currentThread().interrupt();
+        } finally {
+            gauges.forEach(LatencyMonitor.registry()::unregister);
+        }
+    }
+    
+    private static void awaitTermination(ExecutorService pool, String stage) throws InterruptedException {
+        if (!pool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.err.printf("%s workers still running after %ds; their audit events may be lost%n",
+                stage, SHUTDOWN_TIMEOUT_SECONDS);
+        }
     }
     
     public void printMetrics() {
         LatencyMonitor.logMetrics();
         System.out.println("\nCircuit Breaker State: " + circuitBreaker.getState());
+        if (tradePool != null) {
+            System.out.printf("Trade pool: %d/%d available, %d misses%n",
+                tradePool.getAvailable(), tradePool.capacity(), tradePool.getMisses());
+        } else {
+            System.out.printf("Off-heap ring: %d slots of %d bytes%n", offHeapRing.capacity(), TradeRecord.SLOT_SIZE);
+        }
+        AuditJournal journal = auditLogger.getJournal();
+        System.out.printf("Audit journal (segment %d): %d events in %d batches (avg %.1f, max %d), %d syncs (avg %.1f μs)%n",
+            auditLogger.getSegments(), journal.getEvents(), journal.getBatches(), journal.getAverageBatchEvents(),
+            journal.getMaxBatchEvents(), journal.getSyncs(), journal.getAverageSyncNanos() / 1000.0);
+    }
+    
+    // Submit-to-execution percentiles and where the time went, stage by stage
+    public void printLatencyTrace() {
+        Map<String, Histogram> histograms = LatencyMonitor.snapshot();
+        System.out.println("\n=== End-to-End Latency of Executed Trades (μs) ===");
+        printPercentiles("submit->execution", histograms.get(totalTimer.getKey()));
+        if (expectedIntervalNanos > 0) {
+            printPercentiles(String.format("corrected @%dμs", expectedIntervalNanos / 1000),
+                histograms.get(correctedTotalTimer.getKey()));
+        }
+        printPercentiles("rejected", histograms.get(rejectedTotalTimer.getKey()));
+        System.out.println("Stage breakdown of executed trades (μs, p50/p99): queue wait | service");
+        for (PipelineStage stage : STAGES) {
+            Histogram wait = histograms.get(queueWaitTimers[stage.ordinal()].getKey());
+            Histogram service = histograms.get(serviceTimers[stage.ordinal()].getKey());
+            System.out.printf("  %-10s %9.2f / %9.2f | %9.2f / %9.2f%n", stage.getMetricName(),
+                wait.getValueAtPercentile(50) / 1000.0, wait.getValueAtPercentile(99) / 1000.0,
+                service.getValueAtPercentile(50) / 1000.0, service.getValueAtPercentile(99) / 1000.0);
+        }
+    }
+    
+    private static void printPercentiles(String label, Histogram histogram) {
+        System.out.printf("%-18s count=%d, p50=%.2f, p90=%.2f, p99=%.2f, p99.9=%.2f, max=%.2f%n",
+            label, histogram.getTotalCount(),
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0);
     }
     
     public static void main(String[] args) {
+        // -Dpubsub.metrics.port=9404 serves /metrics while the run is in progress
+        MetricsExporter exporter = MetricsExporter.startFromProperty();
+        // Trades are offered on a fixed schedule so a stall shows up as missed submissions, which
+        // total_corrected accounts for
+        long intervalNanos = Long.getLong("pubsub.latency.expected.interval.nanos", 50_000);
         try (HighPerformanceTradeProcessor processor = 
-                new HighPerformanceTradeProcessor(1024, 4)) {
+                new HighPerformanceTradeProcessor(1024, 4, new YieldingWaitStrategy(), intervalNanos)) {
             
             // Warm up the system
             for (int i = 0; i < 1000; i++) {
@@ -155,20 +581,56 @@ public class HighPerformanceTradeProcessor implements AutoCloseable {
                     OrderType.MARKET, "WARMUP", "TRADER1", "ACC1");
             }
             
+            // Let the warmup trades finish first, or they straddle the reset and skew the counts
+            processor.awaitDrained();
             LatencyMonitor.reset(); // Reset metrics after warmup
             
             // Process some real trades
+            long nextSubmit = System.nanoTime();
             for (int i = 0; i < 10000; i++) {
+                nextSubmit = awaitSchedule(nextSubmit, intervalNanos);
                 processor.submitTrade("AAPL", 150.50 + i, 100, "NYSE", 
                     OrderType.MARKET, "CP1", "TRADER1", "ACC1");
+                nextSubmit = awaitSchedule(nextSubmit, intervalNanos);
                 processor.submitTrade("GOOGL", 2750.00 + i, 50, "NASDAQ", 
                     OrderType.LIMIT, "CP2", "TRADER2", "ACC2");
             }
             
             Thread.sleep(1000); // Let processing complete
             processor.printMetrics();
+            processor.printLatencyTrace();
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            if (exporter != null) {
+                exporter.close();
+            }
+        }
+    }
+    
+    // Returns once every trade offered so far has been through execution and released
+    private void awaitDrained() {
+        while (ringDepth() > 0) {
+            Thread.yield();
+        }
+    }
+    
+    // Returns the number of sequences still in the ring when the wait ended
+    private long awaitDrained(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long depth;
+        while ((depth = ringDepth()) > 0 && System.nanoTime() - deadline < 0) {
+            Thread.yield();
+        }
+        return depth;
+    }
+    
+    // Waits for the scheduled submit time and returns the next one. A producer that falls behind
+    // submits straight away rather than resetting the schedule, so the backlog stays visible.
+    private static long awaitSchedule(long scheduledNanos, long intervalNanos) {
+        while (System.nanoTime() < scheduledNanos) {
+            Thread.yield();
         }
+        return scheduledNanos + intervalNanos;
     }
 }
@@ -3,10 +3,17 @@ package com.example.pubsub;
 public class Message {
     private final String content;
     private final String topic;
+    private final String key;
 
     public Message(String content, String topic) {
+        this(content, topic, null);
+    }
+
+    // The key (e.g. trade symbol) picks the consumer group partition and so defines ordering
+    public Message(String content, String topic, String key) {
         this.content = content;
         this.topic = topic;
+        this.key = key;
     }
 
     public String getContent() {
@@ -17,6 +24,18 @@ public class Message {
         return topic;
     }
 
+    public String getKey() {
+        return key;
+    }
+
+    // Reference counting for pooled payloads; plain String messages are simply garbage collected.
+    // A subscriber that keeps a message past onMessage retains it there and releases it when done.
+    public void retain(int count) {
+    }
+
+    public void release() {
+    }
+
     @Override
     public String toString() {
         return "Message{topic='" + topic + "', content='" + content + "'}";
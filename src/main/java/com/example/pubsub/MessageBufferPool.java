@@ -0,0 +1,56 @@
+package com.example.pubsub;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MessageBufferPool {
+    private final BlockingQueue<BinaryMessage> free;
+    private final int bufferSize;
+    private final LongAdder misses;
+
+    public MessageBufferPool(int bufferSize, int bufferCount) {
+        if (bufferSize <= 0 || bufferCount <= 0) {
+            throw new IllegalArgumentException("Buffer size and count must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        this.misses = new LongAdder();
+
+        // One direct allocation carved into fixed-size slices, all created up front
+        ByteBuffer arena = ByteBuffer.allocateDirect(bufferSize * bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            arena.limit((i + 1) * bufferSize).position(i * bufferSize);
+            free.offer(new BinaryMessage(arena.slice(), this));
+        }
+    }
+
+    // The caller owns one reference; TopicBroker.publish takes it over
+    public BinaryMessage acquire(String topic) {
+        BinaryMessage message = free.poll();
+        if (message == null) {
+            // Pool exhausted: fall back to a heap buffer that is dropped rather than recycled
+            misses.increment();
+            message = new BinaryMessage(ByteBuffer.allocate(bufferSize), null);
+        }
+        message.reset(topic);
+        return message;
+    }
+
+    void recycle(BinaryMessage message) {
+        free.offer(message);
+    }
+
+    public int getAvailable() {
+        return free.size();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
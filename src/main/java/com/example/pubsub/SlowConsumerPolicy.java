@@ -0,0 +1,9 @@
+package com.example.pubsub;
+
+// What a dedicated lane does when its bounded inbox cannot keep up with the publisher
+public enum SlowConsumerPolicy {
+    BLOCK,        // publisher waits for space
+    DROP_OLDEST,  // evict the oldest pending message to make room
+    DROP_NEWEST,  // discard the message being published
+    DISCONNECT    // drop the subscriber once its lag reaches the threshold
+}
@@ -1,6 +1,9 @@
 package com.example.pubsub;
 
 public interface Subscriber {
+    // The broker owns the message and may recycle a pooled BinaryMessage, overwriting its payload, as
+    // soon as this returns. To keep it longer, call message.retain(1) before returning and release()
+    // exactly once when done; otherwise copy what is needed out of the payload.
     void onMessage(Message message);
     String getTopic();
 }
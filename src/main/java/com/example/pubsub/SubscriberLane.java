@@ -0,0 +1,272 @@
+package com.example.pubsub;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class SubscriberLane implements Runnable {
+    private final Subscriber subscriber;
+    // Holds either a Message or a ConflationSlot whose latest value is read at drain time
+    private final BlockingQueue<Object> inbox;
+    private final ConcurrentMap<String, ConcurrentMap<String, ConflationSlot>> conflationSlots;
+    private final SlowConsumerPolicy policy;
+    private final int disconnectLag;
+    private final Consumer<SubscriberLane> onDisconnect;
+    private final LongAdder delivered;
+    private final LongAdder dropped;
+    private final LongAdder conflated;
+    private volatile boolean running;
+    private final AtomicBoolean disconnected;
+    private Thread thread;
+
+    // Inline lane: dispatches on the publisher thread, so there is nothing to bound
+    SubscriberLane(Subscriber subscriber) {
+        this(subscriber, 0, SlowConsumerPolicy.BLOCK, 0, null);
+    }
+
+    // Dedicated lane: bounded inbox drained by its own thread, overflow handled by the policy
+    SubscriberLane(Subscriber subscriber, int capacity, SlowConsumerPolicy policy, int disconnectLag,
+                   Consumer<SubscriberLane> onDisconnect) {
+        this.subscriber = subscriber;
+        this.inbox = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+        this.conflationSlots = new ConcurrentHashMap<>();
+        this.policy = policy;
+        this.disconnectLag = disconnectLag > 0 ? Math.min(disconnectLag, capacity) : capacity;
+        this.onDisconnect = onDisconnect;
+        this.delivered = new LongAdder();
+        this.dropped = new LongAdder();
+        this.disconnected = new AtomicBoolean();
+        this.conflated = new LongAdder();
+        this.running = true;
+    }
+
+    void start() {
+        if (inbox == null) {
+            return;
+        }
+        thread = new Thread(this, "lane-" + subscriber.getTopic());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void deliver(Message message) {
+        if (!running) {
+            message.release();
+            return;
+        }
+        if (inbox == null) {
+            dispatch(message);
+            return;
+        }
+        enqueue(message);
+    }
+
+    // Conflating topics: a pending message with the same topic and key is overwritten in place,
+    // so the inbox holds at most one entry per key no matter how fast the publisher runs
+    void deliverConflated(Message message) {
+        if (!running) {
+            message.release();
+            return;
+        }
+        if (inbox == null) {
+            dispatch(message);
+            return;
+        }
+        ConflationSlot slot = slotFor(message);
+        slot.touched = true;
+        Message previous = slot.latest.getAndSet(message);
+        if (previous == null) {
+            enqueue(slot);
+        } else {
+            conflated.increment();
+            previous.release();
+        }
+    }
+
+    // Last-value snapshot for a new subscriber; never overwrites a live value that already arrived
+    void deliverSnapshot(Message message) {
+        if (!running) {
+            message.release();
+            return;
+        }
+        if (inbox == null) {
+            dispatch(message);
+            return;
+        }
+        ConflationSlot slot = slotFor(message);
+        if (slot.touched || !slot.latest.compareAndSet(null, message)) {
+            message.release();
+            return;
+        }
+        enqueue(slot);
+    }
+
+    private ConflationSlot slotFor(Message message) {
+        ConcurrentMap<String, ConflationSlot> slots = conflationSlots.get(message.getTopic());
+        if (slots == null) {
+            slots = conflationSlots.computeIfAbsent(message.getTopic(), t -> new ConcurrentHashMap<>());
+        }
+        String key = conflationKey(message);
+        ConflationSlot slot = slots.get(key);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(key, k -> new ConflationSlot());
+        }
+        return slot;
+    }
+
+    static String conflationKey(Message message) {
+        return message.getKey() == null ? "" : message.getKey();
+    }
+
+    private void enqueue(Object item) {
+        switch (policy) {
+            case BLOCK:
+                try {
+                    inbox.put(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(item);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!inbox.offer(item)) {
+                    Object oldest = inbox.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+                break;
+            case DROP_NEWEST:
+                if (!inbox.offer(item)) {
+                    drop(item);
+                }
+                break;
+            case DISCONNECT:
+                if (inbox.size() >= disconnectLag || !inbox.offer(item)) {
+                    drop(item);
+                    disconnect();
+                }
+                break;
+        }
+    }
+
+    private void drop(Object item) {
+        dropped.increment();
+        release(item);
+    }
+
+    private static void release(Object item) {
+        Message message = unwrap(item);
+        if (message != null) {
+            message.release();
+        }
+    }
+
+    private static Message unwrap(Object item) {
+        if (item instanceof ConflationSlot) {
+            return ((ConflationSlot) item).latest.getAndSet(null);
+        }
+        return (Message) item;
+    }
+
+    private void disconnect() {
+        // Publishers on several threads can hit the limit at once; only the first one disconnects
+        if (!disconnected.compareAndSet(false, true)) {
+            return;
+        }
+        System.err.printf("Disconnecting slow subscriber on topic %s: lag %d, dropped %d%n",
+            subscriber.getTopic(), getLag(), getDropped());
+        close();
+        if (onDisconnect != null) {
+            onDisconnect.accept(this);
+        }
+    }
+
+    private void dispatch(Message message) {
+        try {
+            subscriber.onMessage(message);
+        } catch (RuntimeException e) {
+            // A failing subscriber must not take down the publisher or the lane
+            System.err.println("Subscriber error on topic " + message.getTopic() + ": " + e.getMessage());
+        } finally {
+            message.release();
+        }
+        delivered.increment();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Message message = unwrap(inbox.take());
+                if (message != null) {
+                    dispatch(message);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (inbox != null) {
+            Object pending;
+            while ((pending = inbox.poll()) != null) {
+                drop(pending);
+            }
+        }
+    }
+
+    public Subscriber getSubscriber() {
+        return subscriber;
+    }
+
+    public boolean isDedicated() {
+        return inbox != null;
+    }
+
+    public SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return inbox == null ? 0 : inbox.size() + inbox.remainingCapacity();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Messages accepted but not yet handed to the subscriber
+    public int getLag() {
+        return inbox == null ? 0 : inbox.size();
+    }
+
+    // Messages overwritten by a newer value for the same key before the subscriber saw them
+    public long getConflated() {
+        return conflated.sum();
+    }
+
+    public boolean isDisconnected() {
+        return disconnected.get();
+    }
+
+    private static final class ConflationSlot {
+        final AtomicReference<Message> latest = new AtomicReference<>();
+        volatile boolean touched;
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.pubsub;
+
+import com.example.pubsub.log.TopicLog;
+import com.example.pubsub.log.TopicLogReader;
+import com.example.pubsub.monitoring.Gauge;
+import com.example.pubsub.monitoring.MetricsRegistry;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+public class TopicBroker implements AutoCloseable {
+    private static final int MAX_CACHED_TOPICS = 65_536;
+    private static final int DEFAULT_LANE_CAPACITY = 65_536;
+
+    // Subscription patterns live in the trie, mutated only under registryLock. Publishers never lock:
+    // they read an immutable Routing snapshot, republished with a fresh cache on every registry change.
+    private final TopicTrie trie;
+    private final Object registryLock;
+    private volatile Routing routing;
+    private final boolean dedicatedLanes;
+    private final int laneCapacity;
+    private final SlowConsumerPolicy defaultPolicy;
+    // Durable mode: each topic appends to its own memory-mapped log before live dispatch
+    private final Path logDirectory;
+    private final ConcurrentMap<String, TopicLog> logs;
+    private final ConcurrentMap<String, ConsumerGroup> groups;
+    private final LongAdder retiredGroupDrops;
+    // Conflating topics keep only the latest message per key, both pending in lanes and in the cache.
+    // Guarded by registryLock; publishers see the copy in the current Routing.
+    private final List<String> conflationPatterns;
+    private final ConcurrentMap<String, ConcurrentMap<String, Message>> lastValues;
+    private final List<Gauge> gauges;
+    private volatile MetricsRegistry metricsRegistry;
+    private volatile boolean running;
+
+    public TopicBroker() {
+        this(true);
+    }
+
+    public TopicBroker(boolean dedicatedLanes) {
+        this(dedicatedLanes, null);
+    }
+
+    // Durable topics must be published from a single thread per topic; appends are not synchronized
+    public TopicBroker(boolean dedicatedLanes, Path logDirectory) {
+        this(dedicatedLanes, logDirectory, DEFAULT_LANE_CAPACITY, SlowConsumerPolicy.BLOCK);
+    }
+
+    public TopicBroker(boolean dedicatedLanes, Path logDirectory, int laneCapacity,
+                       SlowConsumerPolicy defaultPolicy) {
+        if (dedicatedLanes && laneCapacity <= 0) {
+            throw new IllegalArgumentException("Lane capacity must be positive");
+        }
+        this.trie = new TopicTrie();
+        this.registryLock = new Object();
+        this.dedicatedLanes = dedicatedLanes;
+        this.laneCapacity = laneCapacity;
+        this.defaultPolicy = defaultPolicy;
+        this.logDirectory = logDirectory;
+        this.logs = new ConcurrentHashMap<>();
+        this.groups = new ConcurrentHashMap<>();
+        this.retiredGroupDrops = new LongAdder();
+        this.conflationPatterns = new ArrayList<>();
+        this.lastValues = new ConcurrentHashMap<>();
+        this.gauges = new CopyOnWriteArrayList<>();
+        this.routing = new Routing(trie.copy(), new String[0]);
+        this.running = true;
+    }
+
+    // Publishes lane totals as gauges under the given pool label until close()
+    public void registerMetrics(MetricsRegistry registry, String pool) {
+        metricsRegistry = registry;
+        gauges.add(registry.registerGauge("broker_lanes", pool, () -> getLanes().size()));
+        gauges.add(registry.registerGauge("broker_lane_lag", pool, () -> sumLanes(SubscriberLane::getLag)));
+        gauges.add(registry.registerGauge("broker_lane_lag_max", pool, () -> {
+            long max = 0;
+            for (SubscriberLane lane : getLanes()) {
+                max = Math.max(max, lane.getLag());
+            }
+            return max;
+        }));
+        gauges.add(registry.registerGauge("broker_delivered", pool, () -> sumLanes(SubscriberLane::getDelivered)));
+        gauges.add(registry.registerGauge("broker_dropped", pool, () -> sumLanes(SubscriberLane::getDropped)));
+        gauges.add(registry.registerGauge("broker_conflated", pool, () -> sumLanes(SubscriberLane::getConflated)));
+        gauges.add(registry.registerGauge("broker_disconnected_lanes", pool,
+            () -> sumLanes(lane -> lane.isDisconnected() ? 1 : 0)));
+        gauges.add(registry.registerGauge("broker_group_dropped", pool, () -> {
+            long total = retiredGroupDrops.sum();
+            for (ConsumerGroup group : groups.values()) {
+                total += group.getDropped();
+            }
+            return total;
+        }));
+    }
+
+    private long sumLanes(ToLongFunction<SubscriberLane> stat) {
+        long total = 0;
+        for (SubscriberLane lane : getLanes()) {
+            total += stat.applyAsLong(lane);
+        }
+        return total;
+    }
+
+    public SubscriberLane subscribe(Subscriber subscriber) {
+        return subscribe(subscriber, defaultPolicy, 0);
+    }
+
+    public SubscriberLane subscribe(Subscriber subscriber, SlowConsumerPolicy policy) {
+        return subscribe(subscriber, policy, 0);
+    }
+
+    // disconnectLag only applies to DISCONNECT; 0 means disconnect when the inbox is full
+    public SubscriberLane subscribe(Subscriber subscriber, SlowConsumerPolicy policy, int disconnectLag) {
+        if (!running) {
+            throw new IllegalStateException("Cannot subscribe: broker is closed");
+        }
+        String topic = subscriber.getTopic();
+        if (topic == null || topic.isEmpty()) {
+            throw new IllegalArgumentException("Subscriber topic cannot be empty");
+        }
+
+        SubscriberLane lane = dedicatedLanes
+            ? new SubscriberLane(subscriber, laneCapacity, policy, disconnectLag, this::onDisconnect)
+            : new SubscriberLane(subscriber);
+        SubscriberLane registered;
+        synchronized (registryLock) {
+            registered = trie.add(topic, lane);
+            if (registered == lane) {
+                publishRouting();
+            }
+        }
+        if (registered == lane) {
+            lane.start();
+            deliverSnapshot(topic, lane);
+        }
+        return registered;
+    }
+
+    // Topics matching the pattern become conflating; applies to messages published from now on
+    public void enableConflation(String topicPattern) {
+        synchronized (registryLock) {
+            if (!conflationPatterns.contains(topicPattern)) {
+                conflationPatterns.add(topicPattern);
+                publishRouting();
+            }
+        }
+    }
+
+    private void deliverSnapshot(String pattern, SubscriberLane lane) {
+        List<Message> snapshot = new ArrayList<>();
+        lastValues.forEach((topic, values) -> {
+            if (TopicTrie.matches(pattern, topic)) {
+                // Retain under the entry lock so a concurrent update cannot recycle the value first
+                for (String key : values.keySet()) {
+                    values.computeIfPresent(key, (k, value) -> {
+                        value.retain(1);
+                        snapshot.add(value);
+                        return value;
+                    });
+                }
+            }
+        });
+        for (Message message : snapshot) {
+            lane.deliverSnapshot(message);
+        }
+    }
+
+    private static void updateLastValue(ConcurrentMap<String, Message> values, Message message) {
+        values.compute(SubscriberLane.conflationKey(message), (key, previous) -> {
+            message.retain(1);
+            if (previous != null) {
+                previous.release();
+            }
+            return message;
+        });
+    }
+
+    public boolean unsubscribe(Subscriber subscriber) {
+        SubscriberLane removed;
+        synchronized (registryLock) {
+            removed = trie.remove(subscriber.getTopic(), subscriber);
+            if (removed != null) {
+                publishRouting();
+            }
+        }
+        if (removed == null) {
+            return false;
+        }
+        removed.close();
+        return true;
+    }
+
+    private void onDisconnect(SubscriberLane lane) {
+        synchronized (registryLock) {
+            if (trie.remove(lane.getSubscriber().getTopic(), lane.getSubscriber()) != null) {
+                publishRouting();
+            }
+        }
+    }
+
+    // The group is registered once on the member's topic; its partitions, not the members, are the lanes
+    public ConsumerGroup joinGroup(String groupName, Subscriber member, int partitionCount) {
+        if (!running) {
+            throw new IllegalStateException("Cannot join group: broker is closed");
+        }
+        synchronized (registryLock) {
+            ConsumerGroup group = groups.get(groupName);
+            if (group == null) {
+                group = new ConsumerGroup(groupName, member.getTopic(), partitionCount, laneCapacity);
+                group.start();
+                trie.add(group.getTopic(), new SubscriberLane(group));
+                publishRouting();
+                groups.put(groupName, group);
+            } else if (!group.getTopic().equals(member.getTopic())) {
+                throw new IllegalArgumentException("Group " + groupName + " consumes " + group.getTopic()
+                    + ", not " + member.getTopic());
+            } else if (group.getPartitionCount() != partitionCount) {
+                throw new IllegalArgumentException("Group " + groupName + " has "
+                    + group.getPartitionCount() + " partitions, not " + partitionCount);
+            }
+            group.join(member);
+            return group;
+        }
+    }
+
+    public boolean leaveGroup(String groupName, Subscriber member) {
+        synchronized (registryLock) {
+            ConsumerGroup group = groups.get(groupName);
+            if (group == null || !group.leave(member)) {
+                return false;
+            }
+            if (group.isEmpty()) {
+                trie.remove(group.getTopic(), group);
+                publishRouting();
+                groups.remove(groupName);
+                group.close();
+                // Keeps broker_group_dropped from going backwards once the group is gone
+                retiredGroupDrops.add(group.getDropped());
+            }
+            return true;
+        }
+    }
+
+    // Takes over the caller's reference: pooled payloads go back to their pool after the last lane is done
+    public int publish(Message message) {
+        if (!running) {
+            message.release();
+            return 0;
+        }
+        if (logDirectory != null) {
+            logFor(message.getTopic()).append(message);
+        }
+        Route route = routeFor(message.getTopic());
+        SubscriberLane[] lanes = route.lanes;
+        message.retain(lanes.length);
+        if (route.lastValues != null) {
+            updateLastValue(route.lastValues, message);
+            for (SubscriberLane lane : lanes) {
+                lane.deliverConflated(message);
+            }
+        } else {
+            for (SubscriberLane lane : lanes) {
+                lane.deliver(message);
+            }
+        }
+        message.release();
+        return lanes.length;
+    }
+
+    // Late joiners attach at TopicLog.EARLIEST, TopicLog.LATEST or an offset returned by a previous read
+    public TopicLogReader replay(String topic, long startOffset) {
+        if (logDirectory == null) {
+            throw new IllegalStateException("Replay requires a broker created with a log directory");
+        }
+        return logFor(topic).reader(startOffset);
+    }
+
+    private TopicLog logFor(String topic) {
+        TopicLog log = logs.get(topic);
+        if (log == null) {
+            log = logs.computeIfAbsent(topic, t -> TopicLog.open(logDirectory, t));
+        }
+        return log;
+    }
+
+    public List<SubscriberLane> getLanes() {
+        return routing.trie.allLanes();
+    }
+
+    public int getSubscriberCount(String topic) {
+        return routeFor(topic).lanes.length;
+    }
+
+    // Caller holds registryLock
+    private void publishRouting() {
+        routing = new Routing(trie.copy(), conflationPatterns.toArray(new String[0]));
+    }
+
+    private Route routeFor(String topic) {
+        Routing current = routing;
+        Route route = current.cache.get(topic);
+        if (route != null) {
+            return route;
+        }
+        ConcurrentMap<String, Message> values = null;
+        for (String pattern : current.conflationPatterns) {
+            if (TopicTrie.matches(pattern, topic)) {
+                values = lastValues.computeIfAbsent(topic, t -> new ConcurrentHashMap<>());
+                break;
+            }
+        }
+        route = new Route(current.trie.resolve(topic), values);
+        // Clear-on-full keeps the cache bounded without ever pushing a hot topic onto the miss path for good
+        if (current.cache.size() >= MAX_CACHED_TOPICS) {
+            current.cache.clear();
+        }
+        current.cache.put(topic, route);
+        return route;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        synchronized (registryLock) {
+            for (SubscriberLane lane : trie.allLanes()) {
+                lane.close();
+            }
+            trie.clear();
+            publishRouting();
+            groups.values().forEach(ConsumerGroup::close);
+            groups.clear();
+        }
+        for (ConcurrentMap<String, Message> values : lastValues.values()) {
+            values.values().forEach(Message::release);
+        }
+        lastValues.clear();
+        logs.values().forEach(TopicLog::close);
+        MetricsRegistry registry = metricsRegistry;
+        if (registry != null) {
+            gauges.forEach(registry::unregister);
+            gauges.clear();
+        }
+    }
+
+    // Immutable apart from the cache, which only ever holds resolutions of this snapshot's trie
+    private static final class Routing {
+        final TopicTrie trie;
+        final String[] conflationPatterns;
+        final ConcurrentMap<String, Route> cache;
+
+        Routing(TopicTrie trie, String[] conflationPatterns) {
+            this.trie = trie;
+            this.conflationPatterns = conflationPatterns;
+            this.cache = new ConcurrentHashMap<>();
+        }
+    }
+
+    private static final class Route {
+        final SubscriberLane[] lanes;
+        final ConcurrentMap<String, Message> lastValues; // null unless the topic conflates
+
+        Route(SubscriberLane[] lanes, ConcurrentMap<String, Message> lastValues) {
+            this.lanes = lanes;
+            this.lastValues = lastValues;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.pubsub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Segment trie over dot-separated topics. '*' matches exactly one segment, '#' matches zero or more.
+// Not thread-safe: TopicBroker mutates one instance under its lock and hands publishers read-only copies.
+class TopicTrie {
+    static final char SEPARATOR = '.';
+    static final String SINGLE_WILDCARD = "*";
+    static final String MULTI_WILDCARD = "#";
+
+    private static final SubscriberLane[] NO_LANES = new SubscriberLane[0];
+
+    private final Node root = new Node();
+
+    SubscriberLane add(String pattern, SubscriberLane lane) {
+        Node node = root;
+        for (String segment : split(pattern)) {
+            node = node.child(segment, true);
+        }
+        for (SubscriberLane existing : node.lanes) {
+            if (existing.getSubscriber() == lane.getSubscriber()) {
+                return existing;
+            }
+        }
+        node.lanes = append(node.lanes, lane);
+        return lane;
+    }
+
+    SubscriberLane remove(String pattern, Subscriber subscriber) {
+        Node node = root;
+        for (String segment : split(pattern)) {
+            node = node.child(segment, false);
+            if (node == null) {
+                return null;
+            }
+        }
+        for (int i = 0; i < node.lanes.length; i++) {
+            SubscriberLane lane = node.lanes[i];
+            if (lane.getSubscriber() == subscriber) {
+                SubscriberLane[] next = new SubscriberLane[node.lanes.length - 1];
+                System.arraycopy(node.lanes, 0, next, 0, i);
+                System.arraycopy(node.lanes, i + 1, next, i, node.lanes.length - i - 1);
+                node.lanes = next;
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    SubscriberLane[] resolve(String topic) {
+        List<SubscriberLane> matches = new ArrayList<>();
+        match(root, split(topic), 0, matches);
+        return matches.isEmpty() ? NO_LANES : matches.toArray(NO_LANES);
+    }
+
+    List<SubscriberLane> allLanes() {
+        List<SubscriberLane> lanes = new ArrayList<>();
+        collect(root, lanes);
+        return lanes;
+    }
+
+    // Deep copy; never mutated afterwards, so concurrent resolve() calls on it need no lock
+    TopicTrie copy() {
+        TopicTrie copy = new TopicTrie();
+        copyInto(root, copy.root);
+        return copy;
+    }
+
+    void clear() {
+        root.children.clear();
+        root.lanes = NO_LANES;
+    }
+
+    static boolean matches(String pattern, String topic) {
+        return matches(split(pattern), 0, split(topic), 0);
+    }
+
+    private static boolean matches(String[] pattern, int p, String[] topic, int t) {
+        if (p == pattern.length) {
+            return t == topic.length;
+        }
+        if (MULTI_WILDCARD.equals(pattern[p])) {
+            for (int i = t; i <= topic.length; i++) {
+                if (matches(pattern, p + 1, topic, i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (t == topic.length) {
+            return false;
+        }
+        return (SINGLE_WILDCARD.equals(pattern[p]) || pattern[p].equals(topic[t]))
+            && matches(pattern, p + 1, topic, t + 1);
+    }
+
+    private static void match(Node node, String[] segments, int depth, List<SubscriberLane> matches) {
+        Node multi = node.children.get(MULTI_WILDCARD);
+        if (multi != null) {
+            // '#' swallows any number of remaining segments, including none
+            for (int i = depth; i <= segments.length; i++) {
+                match(multi, segments, i, matches);
+            }
+        }
+        if (depth == segments.length) {
+            addAll(node.lanes, matches);
+            return;
+        }
+        Node exact = node.children.get(segments[depth]);
+        if (exact != null) {
+            match(exact, segments, depth + 1, matches);
+        }
+        Node single = node.children.get(SINGLE_WILDCARD);
+        if (single != null) {
+            match(single, segments, depth + 1, matches);
+        }
+    }
+
+    private static void addAll(SubscriberLane[] lanes, List<SubscriberLane> matches) {
+        for (SubscriberLane lane : lanes) {
+            // Overlapping '#' paths can reach the same node twice
+            if (!matches.contains(lane)) {
+                matches.add(lane);
+            }
+        }
+    }
+
+    private static void collect(Node node, List<SubscriberLane> lanes) {
+        lanes.addAll(Arrays.asList(node.lanes));
+        for (Node child : node.children.values()) {
+            collect(child, lanes);
+        }
+    }
+
+    private static void copyInto(Node source, Node target) {
+        target.lanes = source.lanes;
+        for (Map.Entry<String, Node> entry : source.children.entrySet()) {
+            Node child = new Node();
+            copyInto(entry.getValue(), child);
+            target.children.put(entry.getKey(), child);
+        }
+    }
+
+    static String[] split(String topic) {
+        int count = 1;
+        for (int i = 0; i < topic.length(); i++) {
+            if (topic.charAt(i) == SEPARATOR) {
+                count++;
+            }
+        }
+        String[] segments = new String[count];
+        int start = 0;
+        int index = 0;
+        for (int i = 0; i < topic.length(); i++) {
+            if (topic.charAt(i) == SEPARATOR) {
+                segments[index++] = topic.substring(start, i);
+                start = i + 1;
+            }
+        }
+        segments[index] = topic.substring(start);
+        return segments;
+    }
+
+    private static SubscriberLane[] append(SubscriberLane[] lanes, SubscriberLane lane) {
+        SubscriberLane[] next = Arrays.copyOf(lanes, lanes.length + 1);
+        next[lanes.length] = lane;
+        return next;
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        SubscriberLane[] lanes = NO_LANES;
+
+        Node child(String segment, boolean create) {
+            Node child = children.get(segment);
+            if (child == null && create) {
+                child = new Node();
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
@@ -1,20 +1,37 @@
 package com.example.pubsub;
 
-import java.time.LocalDateTime;
-import java.util.concurrent.atomic.AtomicLong;
+import com.example.pubsub.model.InternDictionary;
+import com.example.pubsub.model.TradeDictionaries;
+import com.example.pubsub.model.TradeSequence;
+import com.example.pubsub.latency.Clock;
+import com.example.pubsub.latency.Clocks;
 
 public final class Trade {
-    private static final AtomicLong ID_GENERATOR = new AtomicLong(0);
+    // Block-allocated per thread: FIX sessions creating trades concurrently do not contend on one counter
+    private static final TradeSequence ID_GENERATOR = new TradeSequence();
     private final long id;
-    private final String symbol;
+    // TradeDictionaries.SYMBOLS id; getSymbol() decodes for output
+    private final int symbolId;
     private final double price;
     private final int quantity;
-    private final LocalDateTime timestamp;
+    // Epoch nanos from Clocks
+    private final long timestampNanos;
+    // System.nanoTime() when the trade was last put on a stage queue; the queue handoff publishes it
+    private long enqueuedNanos;
 
-    public Trade(String symbol, double price, int quantity, LocalDateTime timestamp) {
-        this.id = ID_GENERATOR.incrementAndGet();
-        if (symbol == null || timestamp == null) {
-            throw new IllegalArgumentException("Symbol and timestamp cannot be null");
+    public Trade(String symbol, double price, int quantity, long timestampNanos) {
+        this(TradeDictionaries.SYMBOLS.intern(symbol), price, quantity, timestampNanos);
+    }
+
+    public Trade(String symbol, double price, int quantity) {
+        this(symbol, price, quantity, Clocks.nanos());
+    }
+
+    // For ingestion paths that have already interned the symbol
+    public Trade(int symbolId, double price, int quantity, long timestampNanos) {
+        this.id = ID_GENERATOR.next();
+        if (symbolId == InternDictionary.NULL_ID) {
+            throw new IllegalArgumentException("Symbol cannot be null");
         }
         if (price <= 0) {
             throw new IllegalArgumentException("Price must be positive");
@@ -23,18 +40,22 @@ public final class Trade {
             throw new IllegalArgumentException("Quantity must be positive");
         }
         
-        this.symbol = symbol;
+        this.symbolId = symbolId;
         this.price = price;
         this.quantity = quantity;
-        this.timestamp = timestamp;
+        this.timestampNanos = timestampNanos;
     }
 
-    public Trade(String symbol, double price, int quantity) {
-        this(symbol, price, quantity, LocalDateTime.now());
+    public Trade(int symbolId, double price, int quantity) {
+        this(symbolId, price, quantity, Clocks.nanos());
+    }
+
+    public int getSymbolId() {
+        return symbolId;
     }
 
     public String getSymbol() {
-        return symbol;
+        return TradeDictionaries.SYMBOLS.lookup(symbolId);
     }
 
     public double getPrice() {
@@ -45,8 +66,17 @@ public final class Trade {
         return quantity;
     }
 
-    public LocalDateTime getTimestamp() {
-        return timestamp; // LocalDateTime is immutable, safe to return directly
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    // Stamped by whoever hands the trade to the next stage, right before the handoff
+    public void markEnqueued() {
+        this.enqueuedNanos = System.nanoTime();
     }
 
     public long getId() {
@@ -56,7 +86,7 @@ public final class Trade {
     @Override
     public String toString() {
         return String.format("Trade{id=%d, symbol='%s', price=%.2f, quantity=%d, timestamp=%s}",
-            id, symbol, price, quantity, timestamp);
+            id, getSymbol(), price, quantity, Clock.toInstant(timestampNanos));
     }
 
     @Override
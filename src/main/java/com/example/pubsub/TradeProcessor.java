@@ -3,9 +3,11 @@ package com.example.pubsub;
 import com.example.pubsub.exceptions.TradeGenerationException;
 import com.example.pubsub.exceptions.TradeQueueException;
 import com.example.pubsub.exceptions.TradeProcessingException;
+import com.example.pubsub.model.TradeDictionaries;
 
 import quickfix.*;
 import quickfix.field.*;
+import quickfix.fix44.BusinessMessageReject;
 import quickfix.fix44.ExecutionReport;
 import quickfix.DoNotSend;
 import java.io.File;
@@ -173,7 +175,7 @@ public class TradeProcessor implements AutoCloseable, Application {
     }
 
     @Override
-    public void fromApp(Message message, SessionID sessionId)
+    public void fromApp(quickfix.Message message, SessionID sessionId)
             throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
         try {
             // Validate incoming message
@@ -197,14 +199,17 @@ public class TradeProcessor implements AutoCloseable, Application {
                     throw new IncorrectTagValue("Invalid price or quantity values");
                 }
                 
-                // Create and queue the trade
-                Trade trade = new Trade(symbol, price, quantity);
+                // Create and queue the trade; the symbol is interned once here at the FIX edge
+                Trade trade = new Trade(TradeDictionaries.SYMBOLS.intern(symbol), price, quantity);
                 if (!tradeQueue.offer(trade)) {
                     throw new TradeQueueException("Failed to add trade to queue - queue full");
                 }
                 
                 System.out.printf("Received FIX trade: %s%n", trade);
             }
+        } catch (TradeQueueException e) {
+            // Back-pressure, not a malformed message: tell the counterparty instead of failing the session
+            rejectMessage(message, sessionId, e.getMessage());
         } catch (Exception e) {
             if (e instanceof FieldNotFound || e instanceof IncorrectDataFormat || 
                 e instanceof IncorrectTagValue || e instanceof UnsupportedMessageType) {
@@ -214,6 +219,20 @@ public class TradeProcessor implements AutoCloseable, Application {
         }
     }
 
+    private void rejectMessage(quickfix.Message message, SessionID sessionId, String reason) {
+        System.err.println("Rejecting FIX message: " + reason);
+        try {
+            BusinessMessageReject reject = new BusinessMessageReject(
+                new RefMsgType(message.getHeader().getString(MsgType.FIELD)),
+                new BusinessRejectReason(BusinessRejectReason.APPLICATION_NOT_AVAILABLE));
+            reject.set(new RefSeqNum(message.getHeader().getInt(MsgSeqNum.FIELD)));
+            reject.set(new Text(reason));
+            Session.sendToTarget(reject, sessionId);
+        } catch (FieldNotFound | SessionNotFound e) {
+            System.err.println("Failed to send business reject: " + e.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         try (TradeProcessor processor = new TradeProcessor()) {
             System.out.println("Starting trade processor...");
@@ -3,7 +3,6 @@ package com.example.pubsub.actor;
 import com.example.pubsub.Trade;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.time.LocalDateTime;
 
 public class ActorTradeProcessor implements AutoCloseable {
     private final ValidationActor validationActor;
@@ -30,7 +29,7 @@ public class ActorTradeProcessor implements AutoCloseable {
     }
 
     public void processTrade(String symbol, double price, int quantity) {
-        Trade trade = new Trade(symbol, price, quantity, LocalDateTime.now());
+        Trade trade = new Trade(symbol, price, quantity);
         validationActor.send(trade);
     }
 
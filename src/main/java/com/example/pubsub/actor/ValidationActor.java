@@ -1,6 +1,7 @@
 package com.example.pubsub.actor;
 
 import com.example.pubsub.Trade;
+import com.example.pubsub.model.InternDictionary;
 
 public class ValidationActor extends TradeActor {
     @Override
@@ -16,8 +17,7 @@ public class ValidationActor extends TradeActor {
 
     private boolean isValidTrade(Trade trade) {
         return trade != null 
-            && trade.getSymbol() != null 
-            && !trade.getSymbol().isEmpty()
+            && trade.getSymbolId() != InternDictionary.NULL_ID
             && trade.getPrice() > 0 
             && trade.getQuantity() > 0;
     }
@@ -1,6 +1,10 @@
 package com.example.pubsub.actor.pool;
 
 import com.example.pubsub.Trade;
+import com.example.pubsub.monitoring.Counter;
+import com.example.pubsub.monitoring.Gauge;
+import com.example.pubsub.monitoring.LatencyMonitor;
+import com.example.pubsub.monitoring.LatencyTimer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -8,10 +12,13 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class ActorPool {
+    private static final long DRAIN_TIMEOUT_MILLIS = 5_000;
+
     private final List<PooledActor> actors;
     private final ExecutorService executorService;
     private final String poolName;
     private final BlockingQueue<Trade> sharedQueue;
+    private final Gauge queueDepth;
     private ActorPool nextPool;
 
     public ActorPool(String poolName, int poolSize, BlockingQueue<Trade> sharedQueue, 
@@ -21,9 +28,17 @@ public class ActorPool {
         this.actors = new ArrayList<>(poolSize);
         this.executorService = Executors.newFixedThreadPool(poolSize);
 
+        // Per-pool metrics, shared by the pool's actors
+        LatencyTimer queueWaitTimer = LatencyMonitor.registry().registerTimer("queue_wait", poolName);
+        LatencyTimer serviceTimer = LatencyMonitor.registry().registerTimer("service", poolName);
+        Counter processed = LatencyMonitor.registry().registerCounter("processed", poolName);
+        Counter dropped = LatencyMonitor.registry().registerCounter("dropped", poolName);
+        this.queueDepth = LatencyMonitor.registry().registerGauge("queue_depth", poolName, sharedQueue::size);
+
         // Create the actors in the pool
         for (int i = 0; i < poolSize; i++) {
             PooledActor actor = actorFactory.createActor(i, sharedQueue);
+            actor.setMetrics(queueWaitTimer, serviceTimer, processed, dropped);
             actors.add(actor);
         }
     }
@@ -46,9 +61,30 @@ public class ActorPool {
         return sharedQueue;
     }
 
+    // Pools must be shut down in pipeline order: once upstream has stopped, this pool's queue only
+    // drains, so waiting for it to empty lets queued trades reach the next stage before the interrupt
     public void shutdown() {
+        awaitDrained();
         actors.forEach(PooledActor::stop);
-        executorService.shutdown();
+        // Interrupt actors waiting in take(); the shared queues never hand out a poison pill
+        executorService.shutdownNow();
+        LatencyMonitor.registry().unregister(queueDepth);
+    }
+
+    private void awaitDrained() {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        try {
+            while (!sharedQueue.isEmpty()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    System.out.printf("WARNING: %s pool shutting down with %d trades still queued%n",
+                        poolName, sharedQueue.size());
+                    return;
+                }
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public String getPoolName() {
@@ -1,6 +1,8 @@
 package com.example.pubsub.actor.pool;
 
 import com.example.pubsub.Trade;
+import com.example.pubsub.monitoring.Counter;
+import com.example.pubsub.monitoring.LatencyTimer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -10,6 +12,10 @@ public abstract class PooledActor implements Runnable {
     protected BlockingQueue<Trade> outQueue;
     protected final int actorId;
     protected volatile boolean running;
+    private LatencyTimer queueWaitTimer;
+    private LatencyTimer serviceTimer;
+    private Counter processed;
+    private Counter dropped;
     private static final ConcurrentMap<Long, Boolean> processedTrades = new ConcurrentHashMap<>();
 
     public PooledActor(int actorId, BlockingQueue<Trade> inQueue) {
@@ -24,10 +30,31 @@ public abstract class PooledActor implements Runnable {
 
     protected void forward(Trade trade) {
         if (outQueue != null) {
-            outQueue.offer(trade);
+            try {
+                // Stage queues are bounded: wait for space rather than silently dropping the trade.
+                // Time blocked here counts towards the next stage's queue wait.
+                trade.markEnqueued();
+                outQueue.put(trade);
+            } catch (InterruptedException e) {
+                // Pool shutdown interrupted us while the next stage was full
+                if (dropped != null) {
+                    dropped.increment();
+                }
+                System.out.printf("WARNING: Trade %d dropped by actor %d: interrupted while forwarding%n",
+                    trade.getId(), actorId);
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
+    // Set by the owning pool before the actor starts
+    void setMetrics(LatencyTimer queueWaitTimer, LatencyTimer serviceTimer, Counter processed, Counter dropped) {
+        this.queueWaitTimer = queueWaitTimer;
+        this.serviceTimer = serviceTimer;
+        this.processed = processed;
+        this.dropped = dropped;
+    }
+
     public void stop() {
         running = false;
     }
@@ -42,7 +69,15 @@ public abstract class PooledActor implements Runnable {
                     System.out.printf("WARNING: Trade %d was already processed! This should never happen!%n", 
                         trade.getId());
                 }
+                long start = System.nanoTime();
+                // Read before process(), whose forward() re-stamps the trade for the next stage
+                long queueWait = start - trade.getEnqueuedNanos();
                 process(trade);
+                if (serviceTimer != null) {
+                    queueWaitTimer.record(queueWait);
+                    serviceTimer.recordSince(start);
+                    processed.increment();
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -1,22 +1,37 @@
 package com.example.pubsub.actor.pool;
 
 import com.example.pubsub.Trade;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.time.LocalDateTime;
+import com.example.pubsub.exceptions.TradeQueueException;
+import com.example.pubsub.latency.BlockingQueueAdapter;
+import com.example.pubsub.latency.ParkingWaitStrategy;
+import com.example.pubsub.latency.WaitStrategy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class PooledTradeProcessor implements AutoCloseable {
     private final ActorPool validationPool;
     private final ActorPool pricingPool;
     private final ActorPool persistencePool;
-    private final LinkedBlockingQueue<Trade> validationQueue;
-    private final LinkedBlockingQueue<Trade> pricingQueue;
-    private final LinkedBlockingQueue<Trade> persistenceQueue;
+    private final BlockingQueue<Trade> validationQueue;
+    private final BlockingQueue<Trade> pricingQueue;
+    private final BlockingQueue<Trade> persistenceQueue;
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 100;
 
     public PooledTradeProcessor(int validatorCount, int pricingCount, int persistenceCount) {
-        // Create shared queues for each stage
-        this.validationQueue = new LinkedBlockingQueue<>();
-        this.pricingQueue = new LinkedBlockingQueue<>();
-        this.persistenceQueue = new LinkedBlockingQueue<>();
+        this(validatorCount, pricingCount, persistenceCount, DEFAULT_QUEUE_CAPACITY, new ParkingWaitStrategy());
+    }
+
+    public PooledTradeProcessor(int validatorCount, int pricingCount, int persistenceCount,
+                                int queueCapacity, WaitStrategy waitStrategy) {
+        // Bounded array queues sized to each hop's producer/consumer counts; no per-trade node or lock
+        this.validationQueue = BlockingQueueAdapter.forConcurrency(
+            Integer.MAX_VALUE, validatorCount, queueCapacity, waitStrategy);
+        this.pricingQueue = BlockingQueueAdapter.forConcurrency(
+            validatorCount, pricingCount, queueCapacity, waitStrategy);
+        this.persistenceQueue = BlockingQueueAdapter.forConcurrency(
+            pricingCount, persistenceCount, queueCapacity, waitStrategy);
 
         // Create actor pools
         this.validationPool = new ActorPool("Validation", validatorCount, validationQueue,
@@ -38,9 +53,20 @@ public class PooledTradeProcessor implements AutoCloseable {
         persistencePool.start();
     }
 
+    // The entry queue is bounded: a caller outpacing validation waits up to ENQUEUE_TIMEOUT_MILLIS
+    // for space, then gets a TradeQueueException and the trade is not processed
     public void processTrade(String symbol, double price, int quantity) {
-        Trade trade = new Trade(symbol, price, quantity, LocalDateTime.now());
-        validationQueue.offer(trade);
+        Trade trade = new Trade(symbol, price, quantity);
+        trade.markEnqueued();
+        try {
+            if (!validationQueue.offer(trade, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new TradeQueueException("Validation queue still full after " + ENQUEUE_TIMEOUT_MILLIS
+                    + "ms; rejecting trade " + trade.getId());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TradeQueueException("Interrupted while enqueuing trade " + trade.getId(), e);
+        }
     }
 
     @Override
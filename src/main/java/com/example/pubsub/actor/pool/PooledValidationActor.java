@@ -1,6 +1,7 @@
 package com.example.pubsub.actor.pool;
 
 import com.example.pubsub.Trade;
+import com.example.pubsub.model.InternDictionary;
 import java.util.concurrent.BlockingQueue;
 
 public class PooledValidationActor extends PooledActor {
@@ -21,8 +22,7 @@ public class PooledValidationActor extends PooledActor {
 
     private boolean isValidTrade(Trade trade) {
         return trade != null 
-            && trade.getSymbol() != null 
-            && !trade.getSymbol().isEmpty()
+            && trade.getSymbolId() != InternDictionary.NULL_ID
             && trade.getPrice() > 0 
             && trade.getQuantity() > 0;
     }
@@ -0,0 +1,204 @@
+package com.example.pubsub.compliance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Compresses closed audit segments and applies retention on a low-priority daemon thread. The
+// writer only publishes the active segment name and releases a permit, neither of which can block.
+// Each pass looks at the whole directory, so segments left uncompressed by an earlier run (or a
+// crash mid-compression) are handled too. Files are gzipped to a temporary name, renamed into
+// place and only then is the original deleted. Segments with a live .active marker belong to a
+// writer, possibly another logger on the same directory, and are never touched.
+final class AuditArchiver implements Runnable {
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final AuditRotationPolicy policy;
+    private final Semaphore wakeups;
+    private final Thread thread;
+    // Segments named at or after this one are still being written
+    private volatile String activeSegment;
+    private volatile boolean running;
+
+    AuditArchiver(Path directory, AuditRotationPolicy policy) {
+        this.directory = directory;
+        this.policy = policy;
+        this.wakeups = new Semaphore(0);
+        this.running = true;
+        this.thread = new Thread(this, "audit-archiver");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // Called by the writer after each roll
+    void setActiveSegment(String baseName) {
+        activeSegment = baseName;
+        wakeups.release();
+    }
+
+    // No segment is active any more; one last pass, then the thread exits
+    void finish() {
+        activeSegment = null;
+        running = false;
+        wakeups.release();
+    }
+
+    @Override
+    public void run() {
+        deleteTemporaryFiles();
+        while (true) {
+            try {
+                wakeups.tryAcquire(SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            wakeups.drainPermits();
+            boolean last = !running;
+            try {
+                sweep();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Audit archiver pass failed: " + e.getMessage());
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void sweep() throws IOException {
+        Map<String, List<Path>> segments = listSegments();
+        // Read after listing: any file that shows up in the listing was created after its segment
+        // was published as active
+        String active = activeSegment;
+        segments.keySet().removeIf(base -> active != null && base.compareTo(active) >= 0
+            || AuditSegments.isActive(directory, base));
+        for (String base : segments.keySet()) {
+            // Left by a writer that died before closing the segment
+            AuditSegments.unmarkActive(directory, base);
+        }
+
+        if (policy.isCompress()) {
+            for (List<Path> files : segments.values()) {
+                for (int i = 0; i < files.size(); i++) {
+                    Path file = files.get(i);
+                    if (!file.getFileName().toString().endsWith(AuditSegments.COMPRESSED_SUFFIX)) {
+                        files.set(i, compress(file));
+                    }
+                }
+            }
+        }
+        applyRetention(segments);
+    }
+
+    // Oldest first; a segment goes when it is past retention or the total is over the limit
+    private void applyRetention(Map<String, List<Path>> segments) throws IOException {
+        if (policy.getRetentionMillis() == 0 && policy.getMaxRetainedBytes() == 0) {
+            return;
+        }
+        long total = 0;
+        Map<String, Long> sizes = new TreeMap<>();
+        for (Map.Entry<String, List<Path>> segment : segments.entrySet()) {
+            long size = 0;
+            for (Path file : segment.getValue()) {
+                size += Files.size(file);
+            }
+            sizes.put(segment.getKey(), size);
+            total += size;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, List<Path>> segment : segments.entrySet()) {
+            boolean expired = policy.getRetentionMillis() > 0
+                && now - lastModified(segment.getValue()) > policy.getRetentionMillis();
+            boolean overLimit = policy.getMaxRetainedBytes() > 0 && total > policy.getMaxRetainedBytes();
+            if (!expired && !overLimit) {
+                // Later segments are newer and the total only shrinks from here
+                break;
+            }
+            for (Path file : segment.getValue()) {
+                Files.deleteIfExists(file);
+            }
+            total -= sizes.get(segment.getKey());
+        }
+    }
+
+    private static long lastModified(List<Path> files) throws IOException {
+        long latest = 0;
+        for (Path file : files) {
+            latest = Math.max(latest, Files.getLastModifiedTime(file).toMillis());
+        }
+        return latest;
+    }
+
+    // Segment files grouped by base name, in name order. A file that exists both plain and
+    // compressed was interrupted between rename and delete; the plain copy is compressed again.
+    private Map<String, List<Path>> listSegments() throws IOException {
+        Map<String, List<Path>> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, AuditSegments.PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String base = AuditSegments.segmentOf(name);
+                if (base == null) {
+                    continue;
+                }
+                if (name.endsWith(AuditSegments.COMPRESSED_SUFFIX)) {
+                    Path plain = file.resolveSibling(name.substring(0,
+                        name.length() - AuditSegments.COMPRESSED_SUFFIX.length()));
+                    if (Files.exists(plain)) {
+                        continue;
+                    }
+                }
+                segments.computeIfAbsent(base, b -> new ArrayList<>()).add(file);
+            }
+        }
+        return segments;
+    }
+
+    private Path compress(Path file) throws IOException {
+        Path target = file.resolveSibling(file.getFileName() + AuditSegments.COMPRESSED_SUFFIX);
+        Path temporary = file.resolveSibling(target.getFileName() + AuditSegments.TEMP_SUFFIX);
+        FileTime modified = Files.getLastModifiedTime(file);
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), COPY_BUFFER_SIZE)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        // Keep the closing time, which retention goes by
+        Files.setLastModifiedTime(temporary, modified);
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file);
+        return target;
+    }
+
+    private void deleteTemporaryFiles() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                AuditSegments.PREFIX + "*" + AuditSegments.TEMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to clean up audit archive temporaries: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.pubsub.compliance;
+
+// Layout of a binary audit segment, shared by BinaryAuditSink and AuditBinaryReader. A segment is
+// three files with a common base name, all big-endian and starting with a magic and version int:
+//   .bin   fixed-size event records, so record n lives at HEADER_BYTES + n * RECORD_BYTES
+//   .dict  (dictionary, id, length, UTF-8 bytes) definitions, each written before the first record
+//          that uses it; symbol, trader and account ids are the process's TradeDictionaries ids
+//   .idx   blocks of (minTs, maxTs, minIdHi, maxIdHi, firstRecord, count) followed by count keys
+//          sorted ascending, each a 44-bit trade id hash above the 20-bit record offset in the block
+// The index is derived data: records past the last complete block are found by scanning.
+final class AuditBinaryFormat {
+    static final String RECORDS_SUFFIX = ".bin";
+    static final String DICTIONARY_SUFFIX = ".dict";
+    static final String INDEX_SUFFIX = ".idx";
+
+    static final int RECORDS_MAGIC = 0x41554442; // "AUDB"
+    static final int DICTIONARY_MAGIC = 0x41554444; // "AUDD"
+    static final int INDEX_MAGIC = 0x41554458; // "AUDX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+
+    // timestamp, id hi, id lo, price, quantity, symbol, trader, account, event, details
+    static final int RECORD_BYTES = 8 + 8 + 8 + 8 + 4 + 4 + 4 + 4 + 4 + 4;
+
+    static final byte DICTIONARY_SYMBOL = 0;
+    static final byte DICTIONARY_TRADER = 1;
+    static final byte DICTIONARY_ACCOUNT = 2;
+    // Event and details text, numbered per segment
+    static final byte DICTIONARY_TEXT = 3;
+    static final int DICTIONARY_COUNT = 4;
+    static final int NULL_TEXT = -1;
+
+    static final int BLOCK_HEADER_BYTES = 8 + 8 + 8 + 8 + 8 + 4;
+    static final int KEY_RECORD_BITS = 20;
+    static final int MAX_BLOCK_RECORDS = 4096;
+    static final long KEY_RECORD_MASK = (1L << KEY_RECORD_BITS) - 1;
+
+    private AuditBinaryFormat() {
+    }
+
+    static long recordOffset(long record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+
+    // Trade id hash in the high bits, so all keys for one trade are adjacent once sorted
+    static long indexKey(long tradeIdHi, long tradeIdLo) {
+        long h = tradeIdHi * 0x9E3779B97F4A7C15L ^ tradeIdLo;
+        h = (h ^ (h >>> 31)) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 29;
+        return h & ~KEY_RECORD_MASK;
+    }
+}
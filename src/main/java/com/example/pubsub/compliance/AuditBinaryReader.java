@@ -0,0 +1,352 @@
+package com.example.pubsub.compliance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static com.example.pubsub.compliance.AuditBinaryFormat.*;
+
+// Read side of a binary segment. Trade and time queries read only the index blocks whose id or
+// time range can match, then the matching records; records past the indexed part are scanned.
+// Tolerates a segment still being written: a torn last record or index block is ignored.
+final class AuditBinaryReader implements AutoCloseable {
+    private static final int SCAN_RECORDS = 4096;
+    private static final String COMPRESSED_RECORDS_SUFFIX = RECORDS_SUFFIX + AuditSegments.COMPRESSED_SUFFIX;
+
+    private final Path recordsFile;
+    // Where a compressed segment was inflated to; deleted on close
+    private final Path inflatedDirectory;
+    private final FileChannel records;
+    private final FileChannel index;
+    private final List<Map<Integer, String>> dictionaries;
+    private final List<Block> blocks;
+    private final long recordCount;
+    private final long indexedRecords;
+    private final Record record;
+
+    // Opens a .bin file, or a .bin.gz from an archived segment
+    static AuditBinaryReader open(Path recordsFile) throws IOException {
+        String name = recordsFile.getFileName().toString();
+        if (!name.endsWith(COMPRESSED_RECORDS_SUFFIX)) {
+            return new AuditBinaryReader(recordsFile, null);
+        }
+        // Index lookups need random access, so the segment is inflated to a temporary directory first
+        String base = name.substring(0, name.length() - COMPRESSED_RECORDS_SUFFIX.length());
+        Path directory = Files.createTempDirectory("audit-segment");
+        try {
+            for (String suffix : new String[] {RECORDS_SUFFIX, DICTIONARY_SUFFIX, INDEX_SUFFIX}) {
+                inflate(recordsFile.resolveSibling(base + suffix), directory.resolve(base + suffix));
+            }
+            return new AuditBinaryReader(directory.resolve(base + RECORDS_SUFFIX), directory);
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    // Copies the plain file if the archiver has not got to it yet, otherwise inflates the .gz
+    private static void inflate(Path plain, Path target) throws IOException {
+        if (Files.exists(plain)) {
+            Files.copy(plain, target, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        Path compressed = plain.resolveSibling(plain.getFileName() + AuditSegments.COMPRESSED_SUFFIX);
+        if (!Files.exists(compressed)) {
+            throw new NoSuchFileException(plain.toString());
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private AuditBinaryReader(Path recordsFile, Path inflatedDirectory) throws IOException {
+        String name = recordsFile.getFileName().toString();
+        if (!name.endsWith(RECORDS_SUFFIX)) {
+            throw new IllegalArgumentException("Not a binary audit segment: " + recordsFile);
+        }
+        Path base = recordsFile.resolveSibling(name.substring(0, name.length() - RECORDS_SUFFIX.length()));
+        this.recordsFile = recordsFile;
+        this.inflatedDirectory = inflatedDirectory;
+        this.records = FileChannel.open(recordsFile, StandardOpenOption.READ);
+        try {
+            this.index = FileChannel.open(BinaryAuditSink.withSuffix(base, INDEX_SUFFIX), StandardOpenOption.READ);
+        } catch (IOException e) {
+            records.close();
+            throw e;
+        }
+        try {
+            checkHeader(records, RECORDS_MAGIC, recordsFile);
+            checkHeader(index, INDEX_MAGIC, recordsFile);
+            this.dictionaries = readDictionaries(BinaryAuditSink.withSuffix(base, DICTIONARY_SUFFIX));
+            this.recordCount = Math.max(0, (records.size() - HEADER_BYTES) / RECORD_BYTES);
+            this.blocks = readBlocks();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        long indexed = 0;
+        for (Block block : blocks) {
+            indexed = Math.max(indexed, block.firstRecord + block.count);
+        }
+        this.indexedRecords = Math.min(indexed, recordCount);
+        this.record = new Record();
+    }
+
+    private static void checkHeader(FileChannel channel, int magic, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != magic) {
+            throw new IOException("Bad binary audit header in " + file);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary audit version " + version + " in " + file);
+        }
+    }
+
+    private static List<Map<Integer, String>> readDictionaries(Path file) throws IOException {
+        List<Map<Integer, String>> dictionaries = new ArrayList<>(DICTIONARY_COUNT);
+        for (int i = 0; i < DICTIONARY_COUNT; i++) {
+            dictionaries.add(new HashMap<>());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != DICTIONARY_MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Bad binary audit header in " + file);
+        }
+        while (buffer.remaining() >= 1 + 4 + 4) {
+            int type = buffer.get();
+            int id = buffer.getInt();
+            int length = buffer.getInt();
+            if (type < 0 || type >= DICTIONARY_COUNT || length < 0) {
+                throw new IOException("Corrupt definition in " + file + " at " + (buffer.position() - 9));
+            }
+            if (length > buffer.remaining()) {
+                break;
+            }
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            dictionaries.get(type).put(id, value);
+        }
+        return dictionaries;
+    }
+
+    // Reads block headers only, skipping over the keys
+    private List<Block> readBlocks() throws IOException {
+        List<Block> result = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        long position = HEADER_BYTES;
+        long size = index.size();
+        while (position + BLOCK_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(index, header, position);
+            header.flip();
+            Block block = new Block();
+            block.minTimestamp = header.getLong();
+            block.maxTimestamp = header.getLong();
+            block.minIdHi = header.getLong();
+            block.maxIdHi = header.getLong();
+            block.firstRecord = header.getLong();
+            block.count = header.getInt();
+            block.keysOffset = position + BLOCK_HEADER_BYTES;
+            position = block.keysOffset + (long) block.count * Long.BYTES;
+            if (block.count <= 0 || block.count > MAX_BLOCK_RECORDS || position > size) {
+                break;
+            }
+            result.add(block);
+        }
+        return result;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    Path getFile() {
+        return recordsFile;
+    }
+
+    // Every record in file order
+    void forEach(Visitor visitor) throws IOException {
+        scan(0, recordCount, Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    // Records written for one trade, in file order
+    void lookup(long tradeIdHi, long tradeIdLo, Visitor visitor) throws IOException {
+        long key = indexKey(tradeIdHi, tradeIdLo);
+        for (Block block : blocks) {
+            if (tradeIdHi < block.minIdHi || tradeIdHi > block.maxIdHi || block.firstRecord >= recordCount) {
+                continue;
+            }
+            ByteBuffer keys = ByteBuffer.allocate(block.count * Long.BYTES);
+            readFully(index, keys, block.keysOffset);
+            keys.flip();
+            int i = lowerBound(keys, block.count, key);
+            for (; i < block.count && (keys.getLong(i * Long.BYTES) & ~KEY_RECORD_MASK) == key; i++) {
+                long recordNumber = block.firstRecord + (keys.getLong(i * Long.BYTES) & KEY_RECORD_MASK);
+                if (recordNumber < recordCount && read(recordNumber)
+                        && record.tradeIdHi == tradeIdHi && record.tradeIdLo == tradeIdLo) {
+                    visitor.visit(record);
+                }
+            }
+        }
+        scanForTrade(indexedRecords, recordCount, tradeIdHi, tradeIdLo, visitor);
+    }
+
+    // Records stamped within [fromNanos, toNanos], in file order
+    void range(long fromNanos, long toNanos, Visitor visitor) throws IOException {
+        for (Block block : blocks) {
+            if (block.maxTimestamp >= fromNanos && block.minTimestamp <= toNanos) {
+                scan(block.firstRecord, Math.min(block.firstRecord + block.count, recordCount), fromNanos, toNanos,
+                    visitor);
+            }
+        }
+        scan(indexedRecords, recordCount, fromNanos, toNanos, visitor);
+    }
+
+    private static int lowerBound(ByteBuffer keys, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.getLong(mid * Long.BYTES) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean read(long recordNumber) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+        readFully(records, buffer, recordOffset(recordNumber));
+        buffer.flip();
+        if (buffer.remaining() < RECORD_BYTES) {
+            return false;
+        }
+        decode(buffer, recordNumber);
+        return true;
+    }
+
+    private void scan(long first, long end, long fromNanos, long toNanos, Visitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_RECORDS * RECORD_BYTES);
+        for (long next = first; next < end; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (end - next) * RECORD_BYTES));
+            readFully(records, buffer, recordOffset(next));
+            buffer.flip();
+            if (buffer.remaining() < RECORD_BYTES) {
+                return;
+            }
+            while (buffer.remaining() >= RECORD_BYTES) {
+                decode(buffer, next++);
+                if (record.timestampNanos >= fromNanos && record.timestampNanos <= toNanos) {
+                    visitor.visit(record);
+                }
+            }
+        }
+    }
+
+    private void scanForTrade(long first, long end, long tradeIdHi, long tradeIdLo, Visitor visitor)
+            throws IOException {
+        scan(first, end, Long.MIN_VALUE, Long.MAX_VALUE, r -> {
+            if (r.tradeIdHi == tradeIdHi && r.tradeIdLo == tradeIdLo) {
+                visitor.visit(r);
+            }
+        });
+    }
+
+    private void decode(ByteBuffer buffer, long recordNumber) {
+        record.recordNumber = recordNumber;
+        record.timestampNanos = buffer.getLong();
+        record.tradeIdHi = buffer.getLong();
+        record.tradeIdLo = buffer.getLong();
+        record.price = buffer.getDouble();
+        record.quantity = buffer.getInt();
+        record.symbol = dictionaries.get(DICTIONARY_SYMBOL).get(buffer.getInt());
+        record.trader = dictionaries.get(DICTIONARY_TRADER).get(buffer.getInt());
+        record.account = dictionaries.get(DICTIONARY_ACCOUNT).get(buffer.getInt());
+        record.event = dictionaries.get(DICTIONARY_TEXT).get(buffer.getInt());
+        record.details = dictionaries.get(DICTIONARY_TEXT).get(buffer.getInt());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            records.close();
+        } finally {
+            try {
+                index.close();
+            } finally {
+                if (inflatedDirectory != null) {
+                    deleteDirectory(inflatedDirectory);
+                }
+            }
+        }
+    }
+
+    interface Visitor {
+        void visit(Record record) throws IOException;
+    }
+
+    // Decoded record, reused between visits; names are null for ids that were null or never defined
+    static final class Record {
+        long recordNumber;
+        long timestampNanos;
+        long tradeIdHi;
+        long tradeIdLo;
+        double price;
+        int quantity;
+        String symbol;
+        String trader;
+        String account;
+        String event;
+        String details;
+    }
+
+    private static final class Block {
+        long minTimestamp;
+        long maxTimestamp;
+        long minIdHi;
+        long maxIdHi;
+        long firstRecord;
+        int count;
+        long keysOffset;
+    }
+}
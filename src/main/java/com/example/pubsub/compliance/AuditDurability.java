@@ -0,0 +1,12 @@
+package com.example.pubsub.compliance;
+
+// When audit bytes are forced to disk. Writes always reach the OS page cache at the end of a batch;
+// this only decides how much of that a power loss can take with it.
+public enum AuditDurability {
+    // Never fsync; the OS flushes when it likes
+    NONE,
+    // fsync after every batch: nothing acknowledged as written can be lost
+    SYNC_PER_BATCH,
+    // fsync at most once per interval: bounds the loss window while amortizing the fsync cost
+    SYNC_INTERVAL
+}
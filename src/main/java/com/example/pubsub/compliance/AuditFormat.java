@@ -0,0 +1,8 @@
+package com.example.pubsub.compliance;
+
+public enum AuditFormat {
+    // Pipe-delimited lines, one per event
+    TEXT,
+    // Fixed-size binary records with dictionary and index sidecars; AuditTool converts back to TEXT
+    BINARY
+}
@@ -0,0 +1,241 @@
+package com.example.pubsub.compliance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only audit file kept open on one FileChannel. Records are staged in a reusable direct
+// buffer and written once per batch (group commit), then forced to disk according to the
+// durability mode. Single writer: only the audit thread calls into it. Metrics are plain volatile
+// fields written by that thread, so readers never contend with it.
+// Failures leave the journal retryable: bytes a failed write did not get out stay staged, a record
+// whose encoding failed can be dropped with abortRecord(), and endBatch() after a failed sync syncs again.
+public class AuditJournal implements AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final AuditDurability durability;
+    private final long syncIntervalNanos;
+    private long lastSyncNanos;
+    private boolean unsynced;
+    private int batchEvents;
+    // Buffer position where the record being encoded starts; -1 between records
+    private int recordStart = -1;
+
+    private volatile long batches;
+    private volatile long events;
+    private volatile long bytesWritten;
+    private volatile long syncs;
+    private volatile long syncNanosTotal;
+    private volatile long syncNanosMax;
+    private volatile int maxBatchEvents;
+
+    public AuditJournal(Path file, AuditDurability durability, long syncIntervalMillis, int bufferSize) {
+        this.file = file;
+        this.durability = durability;
+        this.syncIntervalNanos = syncIntervalMillis * 1_000_000;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open audit journal " + file, e);
+        }
+        this.lastSyncNanos = System.nanoTime();
+    }
+
+    // Space for one record of at most maxBytes; encode into the returned buffer at its position,
+    // then call endRecord(). Spills staged records to the channel when the buffer is full.
+    public ByteBuffer reserve(int maxBytes) {
+        if (maxBytes > buffer.capacity()) {
+            throw new IllegalArgumentException("Audit record of " + maxBytes + " bytes exceeds buffer size");
+        }
+        if (buffer.remaining() < maxBytes) {
+            drainBuffer();
+        }
+        recordStart = buffer.position();
+        return buffer;
+    }
+
+    public void endRecord() {
+        recordStart = -1;
+        batchEvents++;
+    }
+
+    // Drops whatever was encoded since the last reserve(), so the record can be encoded again
+    public void abortRecord() {
+        if (recordStart >= 0) {
+            buffer.position(recordStart);
+            recordStart = -1;
+        }
+    }
+
+    public void append(byte[] record) {
+        if (record.length > buffer.capacity()) {
+            drainBuffer();
+            writeUnbuffered(record);
+        } else {
+            reserve(record.length).put(record);
+        }
+        endRecord();
+    }
+
+    // All or nothing: a partly written record is cut off again so a retry does not duplicate its start
+    private void writeUnbuffered(byte[] record) {
+        long sizeBefore;
+        try {
+            sizeBefore = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read size of audit journal " + file, e);
+        }
+        try {
+            writeFully(ByteBuffer.wrap(record));
+        } catch (UncheckedIOException e) {
+            try {
+                channel.truncate(sizeBefore);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    // Ends a group commit: one write for everything staged, then the durability policy. Safe to
+    // call again after it throws; a sync that failed is retried.
+    public void endBatch() {
+        if (batchEvents > 0) {
+            drainBuffer();
+            events += batchEvents;
+            batches++;
+            if (batchEvents > maxBatchEvents) {
+                maxBatchEvents = batchEvents;
+            }
+            batchEvents = 0;
+            unsynced = true;
+        }
+        if (durability == AuditDurability.SYNC_PER_BATCH && unsynced) {
+            sync();
+        } else if (durability == AuditDurability.SYNC_INTERVAL) {
+            syncIfDue();
+        }
+    }
+
+    // Writes staged bytes without counting a batch or applying the durability policy; for file headers
+    public void flush() {
+        drainBuffer();
+    }
+
+    // Called by the writer when idle too, so the last batch of a burst does not wait for the next one
+    public void syncIfDue() {
+        if (durability == AuditDurability.SYNC_INTERVAL && unsynced
+                && System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+            sync();
+        }
+    }
+
+    public void sync() {
+        long start = System.nanoTime();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync audit journal " + file, e);
+        }
+        long elapsed = System.nanoTime() - start;
+        lastSyncNanos = start + elapsed;
+        unsynced = false;
+        syncs++;
+        syncNanosTotal += elapsed;
+        if (elapsed > syncNanosMax) {
+            syncNanosMax = elapsed;
+        }
+    }
+
+    // On failure the bytes not yet written stay staged for the next attempt
+    private void drainBuffer() {
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    private void writeFully(ByteBuffer source) {
+        try {
+            while (source.hasRemaining()) {
+                bytesWritten += channel.write(source);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write audit journal " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        endBatch();
+        if (durability != AuditDurability.NONE && unsynced) {
+            sync();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close audit journal " + file, e);
+        }
+    }
+
+    // Bytes in the file plus those still staged; writer thread only
+    public long size() {
+        try {
+            return channel.size() + buffer.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read size of audit journal " + file, e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public AuditDurability getDurability() {
+        return durability;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public double getAverageBatchEvents() {
+        long b = batches;
+        return b == 0 ? 0 : (double) events / b;
+    }
+
+    public int getMaxBatchEvents() {
+        return maxBatchEvents;
+    }
+
+    public long getSyncs() {
+        return syncs;
+    }
+
+    public long getSyncNanosMax() {
+        return syncNanosMax;
+    }
+
+    public double getAverageSyncNanos() {
+        long s = syncs;
+        return s == 0 ? 0 : (double) syncNanosTotal / s;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.model.TradeIdGenerator;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.util.Locale;
+
+// Writes audit lines straight into a ByteBuffer, producing exactly the bytes of
+//   String.format("%s|%s|%s|%.4f|%d|%s|%s|%s|%s", instant, tradeId, symbol, price, quantity, ...)
+// followed by the line separator, encoded as UTF-8, without allocating. Values outside the fast
+// paths (years beyond 0-9999, NaN/infinite or huge prices, a locale without '.' and '0') fall back
+// to the formatter, so output never changes.
+final class AuditLineEncoder {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte SEPARATOR = '|';
+    // Beyond this, distinct 5-decimal values could share a double and the tie check below breaks down
+    private static final double MAX_FAST_PRICE = 1e9;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final boolean PLAIN_LOCALE = plainLocale();
+
+    // Fixed parts: timestamp, id, price, quantity, separators and line ending with room to spare
+    private static final int FIXED_BYTES = 192;
+    // %.4f of the largest double is 309 integer digits plus sign, point and fraction
+    private static final int MAX_PRICE_BYTES = 320;
+
+    private AuditLineEncoder() {
+    }
+
+    private static boolean plainLocale() {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        return symbols.getDecimalSeparator() == '.' && symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+    }
+
+    // Upper bound on the encoded size, so the caller can reserve space before encoding
+    static int maxLength(String symbol, double price, String trader, String account, String event,
+                         String details) {
+        int priceBytes = Math.abs(price) < MAX_FAST_PRICE ? 0 : MAX_PRICE_BYTES;
+        return FIXED_BYTES + priceBytes + 3 * (length(symbol) + length(trader) + length(account) + length(event) + length(details));
+    }
+
+    private static int length(String value) {
+        return value == null ? NULL.length : value.length();
+    }
+
+    static void encode(ByteBuffer dst, long timestampNanos, long tradeIdHi, long tradeIdLo, String symbol,
+                       double price, int quantity, String trader, String account, String event,
+                       String details) {
+        putTimestamp(dst, timestampNanos);
+        dst.put(SEPARATOR);
+        TradeIdGenerator.encode(tradeIdHi, tradeIdLo, dst);
+        dst.put(SEPARATOR);
+        putString(dst, symbol);
+        dst.put(SEPARATOR);
+        putPrice(dst, price);
+        dst.put(SEPARATOR);
+        putInt(dst, quantity);
+        dst.put(SEPARATOR);
+        putString(dst, trader);
+        dst.put(SEPARATOR);
+        putString(dst, account);
+        dst.put(SEPARATOR);
+        putString(dst, event);
+        dst.put(SEPARATOR);
+        putString(dst, details);
+        dst.put(LINE_SEPARATOR);
+    }
+
+    // Same text as Instant.toString() at microsecond precision: seconds always, then 0, 3 or 6 fraction
+    // digits. Truncating keeps lines identical to the Instant.now() stamps of earlier logs; binary
+    // segments still carry the full nanoseconds. Precision only: see PreciseClock for the accuracy.
+    static void putTimestamp(ByteBuffer dst, long timestampNanos) {
+        // Truncate within the second: flooring the whole value to micros overflows near Long.MIN_VALUE
+        long seconds = Math.floorDiv(timestampNanos, 1_000_000_000L);
+        int nanos = (int) Math.floorMod(timestampNanos, 1_000_000_000L) / 1000 * 1000;
+        long epochDay = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(seconds, SECONDS_PER_DAY);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian, era-based)
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) {
+            putAscii(dst, Instant.ofEpochSecond(seconds, nanos).toString());
+            return;
+        }
+        putDigits(dst, year, 4);
+        dst.put((byte) '-');
+        putDigits(dst, month, 2);
+        dst.put((byte) '-');
+        putDigits(dst, day, 2);
+        dst.put((byte) 'T');
+        putDigits(dst, secondOfDay / 3600, 2);
+        dst.put((byte) ':');
+        putDigits(dst, secondOfDay / 60 % 60, 2);
+        dst.put((byte) ':');
+        putDigits(dst, secondOfDay % 60, 2);
+        if (nanos != 0) {
+            dst.put((byte) '.');
+            if (nanos % 1_000_000 == 0) {
+                putDigits(dst, nanos / 1_000_000, 3);
+            } else {
+                putDigits(dst, nanos / 1000, 6);
+            }
+        }
+        dst.put((byte) 'Z');
+    }
+
+    // %.4f rounds the shortest decimal representation of the double HALF_UP. The double nearest to
+    // the halfway point f + 0.5 (in units of 1e-4) is exactly (f + 0.5) / 1e4, so comparing against
+    // it decides the rounding direction, with equality meaning the shortest decimal is the tie.
+    static void putPrice(ByteBuffer dst, double price) {
+        double magnitude = Math.abs(price);
+        if (!PLAIN_LOCALE || !(magnitude < MAX_FAST_PRICE)) {
+            putString(dst, String.format("%.4f", price));
+            return;
+        }
+        double floor = Math.floor(magnitude * 10_000);
+        double halfway = (floor + 0.5) / 10_000;
+        long units = (long) floor + (magnitude >= halfway ? 1 : 0);
+        // The formatter keeps the sign even when the value rounds to zero, including -0.0
+        if (Double.doubleToRawLongBits(price) < 0) {
+            dst.put((byte) '-');
+        }
+        putLong(dst, units / 10_000);
+        dst.put((byte) '.');
+        putDigits(dst, units % 10_000, 4);
+    }
+
+    static void putInt(ByteBuffer dst, int value) {
+        if (!PLAIN_LOCALE) {
+            putString(dst, String.format("%d", value));
+            return;
+        }
+        if (value < 0) {
+            dst.put((byte) '-');
+            // Negating in long arithmetic keeps Integer.MIN_VALUE correct
+            putLong(dst, -(long) value);
+        } else {
+            putLong(dst, value);
+        }
+    }
+
+    private static void putLong(ByteBuffer dst, long value) {
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        putDigits(dst, value, digits);
+    }
+
+    private static void putDigits(ByteBuffer dst, long value, int digits) {
+        int end = dst.position() + digits;
+        for (int i = end - 1; i >= end - digits; i--) {
+            dst.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        dst.position(end);
+    }
+
+    private static void putAscii(ByteBuffer dst, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            dst.put((byte) value.charAt(i));
+        }
+    }
+
+    // UTF-8 by hand; unpaired surrogates become '?' exactly as String.getBytes(UTF_8) does
+    static void putString(ByteBuffer dst, String value) {
+        if (value == null) {
+            dst.put(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                dst.put((byte) c);
+            } else if (c < 0x800) {
+                dst.put((byte) (0xC0 | (c >> 6)));
+                dst.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    dst.put((byte) (0xF0 | (codePoint >> 18)));
+                    dst.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    dst.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    dst.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    dst.put((byte) '?');
+                }
+            } else {
+                dst.put((byte) (0xE0 | (c >> 12)));
+                dst.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                dst.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -1,112 +1,280 @@
 package com.example.pubsub.compliance;
 
+import com.example.pubsub.latency.Clocks;
+import com.example.pubsub.latency.Sequence;
+import com.example.pubsub.latency.Sequencer;
 import com.example.pubsub.model.MarketTrade;
-import java.time.Instant;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import com.example.pubsub.model.TradeRecord;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+// Producers copy primitive trade fields into preallocated event slots of a multi-producer ring;
+// the writer thread encodes them straight into the journal buffer. Nothing is allocated per event
+// on either side. -Dpubsub.audit.format=binary selects the compact binary segment format; segments
+// roll, compress and expire according to the AuditRotationPolicy.
+// A batch that fails to write is retried with backoff until it succeeds. Until then its slots
+// stay claimed, so producers block once the ring fills. Events are only given up on during stop(),
+// after SHUTDOWN_RETRIES attempts, or when logged after stop(), and counted in getLostEvents().
 public class AuditLogger implements Runnable {
     private static final String AUDIT_DIR = "audit_logs";
-    private static final int QUEUE_SIZE = 100_000;
-    private final BlockingQueue<AuditEvent> auditQueue;
+    private static final int QUEUE_SIZE = 128 * 1024;
+    private static final int MAX_BATCH_SIZE = 4096;
+    // How long the writer parks when idle before checking again for events, shutdown and interval syncs
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final long MIN_RETRY_NANOS = 1_000_000;
+    private static final long MAX_RETRY_NANOS = 1_000_000_000;
+    private static final int SHUTDOWN_RETRIES = 5;
+
+    private final AuditEvent[] events;
+    private final int mask;
+    private final Sequencer sequencer;
+    // Last slot written to the journal; gates producers so unwritten slots are never overwritten
+    private final Sequence written;
     private final AtomicBoolean running;
-    private final String logFile;
+    private final RotatingAuditSink sink;
+    private final LongAdder backpressured;
+    private final LongAdder writeFailures;
+    private final LongAdder lostEvents;
     
     public AuditLogger() {
-        this.auditQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        this(Paths.get(AUDIT_DIR), AuditDurability.SYNC_INTERVAL, 100);
+    }
+    
+    public AuditLogger(Path directory, AuditDurability durability, long syncIntervalMillis) {
+        this(directory, durability, syncIntervalMillis, formatFromProperty());
+    }
+    
+    public AuditLogger(Path directory, AuditDurability durability, long syncIntervalMillis, AuditFormat format) {
+        this(directory, durability, syncIntervalMillis, format, AuditRotationPolicy.DEFAULT);
+    }
+    
+    public AuditLogger(Path directory, AuditDurability durability, long syncIntervalMillis, AuditFormat format,
+                       AuditRotationPolicy rotationPolicy) {
+        this.events = new AuditEvent[QUEUE_SIZE];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new AuditEvent();
+        }
+        this.mask = QUEUE_SIZE - 1;
+        this.sequencer = new Sequencer(QUEUE_SIZE);
+        this.written = new Sequence();
+        this.sequencer.addGatingSequences(written);
         this.running = new AtomicBoolean(true);
-        this.logFile = AUDIT_DIR + "/audit_" + Instant.now().toString().replace(":", "_") + ".log";
+        this.backpressured = new LongAdder();
+        this.writeFailures = new LongAdder();
+        this.lostEvents = new LongAdder();
         
         // Ensure audit directory exists
         try {
-            Files.createDirectories(Paths.get(AUDIT_DIR));
+            Files.createDirectories(directory);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create audit directory", e);
         }
+        this.sink = new RotatingAuditSink(directory, rotationPolicy, base -> format == AuditFormat.BINARY
+            ? new BinaryAuditSink(base, durability, syncIntervalMillis)
+            : new TextAuditSink(Paths.get(base + AuditSegments.TEXT_SUFFIX), durability, syncIntervalMillis));
+    }
+    
+    private static AuditFormat formatFromProperty() {
+        String value = System.getProperty("pubsub.audit.format");
+        return value == null ? AuditFormat.TEXT : AuditFormat.valueOf(value.trim().toUpperCase(Locale.ROOT));
     }
     
     public void logTradeEvent(MarketTrade trade, String event, String details) {
-        AuditEvent auditEvent = new AuditEvent(
-            trade.getTradeId().toString(),
-            trade.getSymbol(),
-            trade.getPrice(),
-            trade.getQuantity(),
-            trade.getTrader(),
-            trade.getAccount(),
-            event,
-            details,
-            Instant.now()
-        );
-        
-        if (!auditQueue.offer(auditEvent)) {
-            System.err.println("WARNING: Audit queue full, event dropped");
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        AuditEvent slot = events[(int) sequence & mask];
+        slot.tradeIdHi = trade.getTradeIdHi();
+        slot.tradeIdLo = trade.getTradeIdLo();
+        slot.symbolId = trade.getSymbolId();
+        slot.price = trade.getPrice();
+        slot.quantity = trade.getQuantity();
+        slot.traderId = trade.getTraderId();
+        slot.accountId = trade.getAccountId();
+        publish(sequence, slot, event, details);
+    }
+    
+    // Off-heap slot; read in place, so the caller must still own it
+    public void logTradeEvent(TradeRecord record, String event, String details) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        AuditEvent slot = events[(int) sequence & mask];
+        slot.tradeIdHi = record.getTradeIdHi();
+        slot.tradeIdLo = record.getTradeIdLo();
+        slot.symbolId = record.getSymbolId();
+        slot.price = record.getPrice();
+        slot.quantity = record.getQuantity();
+        slot.traderId = record.getTraderId();
+        slot.accountId = record.getAccountId();
+        publish(sequence, slot, event, details);
+    }
+    
+    // Returns -1, counting the event as lost, once stop() has been called: after that nothing may
+    // free ring space, so waiting for it could block the caller forever
+    private long claim() {
+        if (!running.get()) {
+            lostEvents.increment();
+            return -1;
+        }
+        // Compliance needs every event: when the writer falls behind, the caller waits instead
+        long sequence = sequencer.tryNext();
+        if (sequence < 0) {
+            backpressured.increment();
+            while ((sequence = sequencer.tryNext()) < 0) {
+                if (!running.get()) {
+                    lostEvents.increment();
+                    return -1;
+                }
+                Thread.onSpinWait();
+            }
         }
+        return sequence;
+    }
+    
+    private void publish(long sequence, AuditEvent slot, String event, String details) {
+        slot.event = event;
+        slot.details = details;
+        slot.timestampNanos = Clocks.nanos();
+        sequencer.publish(sequence);
     }
     
+    // Everything published since the last pass is written as one group commit
     @Override
     public void run() {
-        while (running.get()) {
+        long next = written.get() + 1;
+        try {
+            while (running.get()) {
+                long available = sequencer.getHighestPublishedSequence(next, sequencer.getCursor());
+                if (available < next) {
+                    syncIfDue();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                next = writeBatch(next, Math.min(available, next + MAX_BATCH_SIZE - 1));
+            }
+        } finally {
+            // Whatever was accepted before stop() still goes to disk, including slots claimed but not yet
+            // published by producers that passed the running check just before it
+            while (next <= sequencer.getCursor()) {
+                long available = sequencer.getHighestPublishedSequence(next, sequencer.getCursor());
+                if (available < next) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                next = writeBatch(next, Math.min(available, next + MAX_BATCH_SIZE - 1));
+            }
             try {
-                AuditEvent event = auditQueue.take();
-                String logLine = formatAuditEvent(event);
-                Files.write(Paths.get(logFile), 
-                          (logLine + System.lineSeparator()).getBytes(),
-                          StandardOpenOption.CREATE, 
-                          StandardOpenOption.APPEND);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                System.err.println("Error writing audit log: " + e.getMessage());
+                sink.close();
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                System.err.println("Error closing audit log: " + e.getMessage());
             }
         }
     }
     
-    private String formatAuditEvent(AuditEvent event) {
-        return String.format("%s|%s|%s|%.4f|%d|%s|%s|%s|%s",
-            event.timestamp,
-            event.tradeId,
-            event.symbol,
-            event.price,
-            event.quantity,
-            event.trader,
-            event.account,
-            event.event,
-            event.details
-        );
+    // Failed syncs are left pending in the journal and tried again on the next pass
+    private void syncIfDue() {
+        try {
+            sink.syncIfDue();
+        } catch (RuntimeException e) {
+            writeFailures.increment();
+            System.err.println("Error syncing audit log: " + e.getMessage());
+        }
+    }
+    
+    // Slots are released only once the batch is in the journal. After a failure the batch resumes
+    // at the event that failed: the sinks leave everything before it staged and nothing of it.
+    private long writeBatch(long first, long last) {
+        long next = first;
+        long backoffNanos = MIN_RETRY_NANOS;
+        int shutdownAttempts = 0;
+        while (true) {
+            try {
+                for (; next <= last; next++) {
+                    AuditEvent event = events[(int) next & mask];
+                    sink.append(event.timestampNanos, event.tradeIdHi, event.tradeIdLo, event.symbolId, event.price,
+                        event.quantity, event.traderId, event.accountId, event.event, event.details);
+                }
+                sink.endBatch();
+                break;
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                if (!running.get() && ++shutdownAttempts > SHUTDOWN_RETRIES) {
+                    // Staged events may or may not reach the file when it closes, so the whole batch counts
+                    lostEvents.add(last - first + 1);
+                    System.err.printf("Giving up on %d audit events at shutdown: %s%n", last - first + 1, e.getMessage());
+                    break;
+                }
+                System.err.printf("Error writing audit log, retrying in %d ms: %s%n",
+                    backoffNanos / 1_000_000, e.getMessage());
+                LockSupport.parkNanos(backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, MAX_RETRY_NANOS);
+            }
+        }
+        for (long sequence = first; sequence <= last; sequence++) {
+            // Drop references so the ring does not keep exception messages alive
+            AuditEvent event = events[(int) sequence & mask];
+            event.event = null;
+            event.details = null;
+        }
+        written.set(last);
+        return last + 1;
     }
     
+    // The writer thread finishes the queued events, syncs and closes the journal before exiting. Events
+    // logged after this are not written and count towards getLostEvents().
     public void stop() {
         running.set(false);
     }
     
-    private static class AuditEvent {
-        final String tradeId;
-        final String symbol;
-        final double price;
-        final int quantity;
-        final String trader;
-        final String account;
-        final String event;
-        final String details;
-        final Instant timestamp;
-        
-        AuditEvent(String tradeId, String symbol, double price, int quantity,
-                  String trader, String account, String event, String details,
-                  Instant timestamp) {
-            this.tradeId = tradeId;
-            this.symbol = symbol;
-            this.price = price;
-            this.quantity = quantity;
-            this.trader = trader;
-            this.account = account;
-            this.event = event;
-            this.details = details;
-            this.timestamp = timestamp;
-        }
+    // The journal holding the current segment's event records (the .bin file in BINARY format)
+    public AuditJournal getJournal() {
+        return sink.getJournal();
+    }
+    
+    // Segments written since construction, including the current one
+    public int getSegments() {
+        return sink.getSegments();
+    }
+    
+    public int getQueueDepth() {
+        return (int) (sequencer.getCursor() - written.get());
+    }
+    
+    // Events whose producer had to wait for ring space
+    public long getBackpressured() {
+        return backpressured.sum();
+    }
+    
+    // Failed write and sync attempts, each retried
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+    
+    // Events given up on at shutdown after repeated write failures, or logged after stop()
+    public long getLostEvents() {
+        return lostEvents.sum();
+    }
+    
+    // Mutable ring slot; ids are decoded only when the line is written
+    private static final class AuditEvent {
+        long tradeIdHi;
+        long tradeIdLo;
+        int symbolId;
+        double price;
+        int quantity;
+        int traderId;
+        int accountId;
+        String event;
+        String details;
+        long timestampNanos;
     }
 }
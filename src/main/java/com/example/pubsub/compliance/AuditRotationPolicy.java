@@ -0,0 +1,67 @@
+package com.example.pubsub.compliance;
+
+// When AuditLogger rolls to a new segment and what happens to closed ones. Zero disables a limit.
+public final class AuditRotationPolicy {
+    // 256MB or one hour per segment, gzip closed segments, delete nothing
+    public static final AuditRotationPolicy DEFAULT =
+        new AuditRotationPolicy(256L * 1024 * 1024, 60 * 60 * 1000L, true, 0, 0);
+    // One segment for the life of the logger, as before rotation existed
+    public static final AuditRotationPolicy NONE = new AuditRotationPolicy(0, 0, false, 0, 0);
+
+    private final long maxSegmentBytes;
+    private final long maxSegmentMillis;
+    private final boolean compress;
+    private final long retentionMillis;
+    private final long maxRetainedBytes;
+
+    // maxSegmentBytes counts the event records only (the .log or .bin file). Retention deletes the
+    // oldest closed segments once they are older than retentionMillis or the closed segments in the
+    // directory add up to more than maxRetainedBytes on disk.
+    public AuditRotationPolicy(long maxSegmentBytes, long maxSegmentMillis, boolean compress,
+                               long retentionMillis, long maxRetainedBytes) {
+        if (maxSegmentBytes < 0 || maxSegmentMillis < 0 || retentionMillis < 0 || maxRetainedBytes < 0) {
+            throw new IllegalArgumentException("Audit rotation limits must not be negative");
+        }
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentMillis = maxSegmentMillis;
+        this.compress = compress;
+        this.retentionMillis = retentionMillis;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    public long getMaxSegmentMillis() {
+        return maxSegmentMillis;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public long getRetentionMillis() {
+        return retentionMillis;
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    public boolean rolls() {
+        return maxSegmentBytes > 0 || maxSegmentMillis > 0;
+    }
+
+    // Whether closed segments need the background archiver at all
+    public boolean archives() {
+        return compress || retentionMillis > 0 || maxRetainedBytes > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditRotationPolicy{maxSegmentBytes=" + maxSegmentBytes + ", maxSegmentMillis=" + maxSegmentMillis
+            + ", compress=" + compress + ", retentionMillis=" + retentionMillis
+            + ", maxRetainedBytes=" + maxRetainedBytes + "}";
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.pubsub.compliance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+// Naming of audit segments. A segment is every file sharing a base name such as
+// audit_2024-01-02T03_04_05.000000000Z: the .log, or the .bin, .dict and .idx of a binary segment,
+// each optionally gzipped. Fixed-width timestamps make name order creation order.
+// A segment being written has a <base>.active marker holding the writer's process id, created
+// before the segment's files and deleted after they are closed. Any logger, in this process or
+// another, can tell from it that the segment is live.
+final class AuditSegments {
+    static final String PREFIX = "audit_";
+    static final String TEXT_SUFFIX = ".log";
+    static final String COMPRESSED_SUFFIX = ".gz";
+    static final String TEMP_SUFFIX = ".tmp";
+    static final String ACTIVE_SUFFIX = ".active";
+    private static final String[] SUFFIXES = {
+        TEXT_SUFFIX, AuditBinaryFormat.RECORDS_SUFFIX, AuditBinaryFormat.DICTIONARY_SUFFIX,
+        AuditBinaryFormat.INDEX_SUFFIX
+    };
+    // Colons are not allowed in file names everywhere
+    private static final DateTimeFormatter NAME_FORMAT =
+        DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH_mm_ss.SSSSSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private AuditSegments() {
+    }
+
+    static String baseName(Instant created) {
+        return PREFIX + NAME_FORMAT.format(created);
+    }
+
+    static void markActive(Path directory, String base) {
+        Path marker = directory.resolve(base + ACTIVE_SUFFIX);
+        try {
+            Files.write(marker, Long.toString(ProcessHandle.current().pid()).getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to mark audit segment active: " + marker, e);
+        }
+    }
+
+    static void unmarkActive(Path directory, String base) {
+        try {
+            Files.deleteIfExists(directory.resolve(base + ACTIVE_SUFFIX));
+        } catch (IOException e) {
+            System.err.println("Failed to remove audit segment marker for " + base + ": " + e.getMessage());
+        }
+    }
+
+    // True while the segment's writer is alive. A marker left behind by a process that died is
+    // stale; one that cannot be read yet (or at all) counts as live.
+    static boolean isActive(Path directory, String base) {
+        String pid;
+        try {
+            pid = new String(Files.readAllBytes(directory.resolve(base + ACTIVE_SUFFIX)), StandardCharsets.US_ASCII);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+        try {
+            return ProcessHandle.of(Long.parseLong(pid.trim())).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // Base name of the segment a file belongs to, or null if it is not a finished segment file
+    static String segmentOf(String fileName) {
+        if (!fileName.startsWith(PREFIX)) {
+            return null;
+        }
+        String name = fileName.endsWith(COMPRESSED_SUFFIX)
+            ? fileName.substring(0, fileName.length() - COMPRESSED_SUFFIX.length())
+            : fileName;
+        for (String suffix : SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.pubsub.compliance;
+
+// Destination for encoded audit events. Single writer: only the audit thread calls into a sink.
+interface AuditSink extends AutoCloseable {
+    void append(long timestampNanos, long tradeIdHi, long tradeIdLo, int symbolId, double price, int quantity,
+                int traderId, int accountId, String event, String details);
+
+    // Group commit for everything appended since the last call
+    void endBatch();
+
+    void syncIfDue();
+
+    // The journal holding the event records, for metrics
+    AuditJournal getJournal();
+
+    @Override
+    void close();
+}
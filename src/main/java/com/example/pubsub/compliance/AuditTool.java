@@ -0,0 +1,174 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.latency.Clock;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Command line access to binary audit segments. Output is the same text AuditLogger writes in
+// TEXT format, so existing tooling keeps working on converted segments.
+//   lookup  <segment.bin|dir> <tradeId>        every event for one trade
+//   range   <segment.bin|dir> <from> <to>      events stamped within two ISO-8601 instants
+//   convert <segment.bin> [output]             whole segment as text, to output or <segment>.log
+// Segments archived by AuditArchiver can be given as .bin.gz.
+public final class AuditTool {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private AuditTool() {
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IOException e) {
+            System.err.println("audit tool failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static int run(String[] args) throws IOException {
+        if (args.length < 2) {
+            return usage();
+        }
+        Path path = Paths.get(args[1]);
+        try {
+            switch (args[0]) {
+                case "lookup":
+                    if (args.length != 3) {
+                        return usage();
+                    }
+                    UUID tradeId = UUID.fromString(args[2]);
+                    return toStdout(path, (reader, out) -> reader.lookup(tradeId.getMostSignificantBits(),
+                        tradeId.getLeastSignificantBits(), out::write));
+                case "range":
+                    if (args.length != 4) {
+                        return usage();
+                    }
+                    long from = Clock.toEpochNanos(Instant.parse(args[2]));
+                    long to = Clock.toEpochNanos(Instant.parse(args[3]));
+                    return toStdout(path, (reader, out) -> reader.range(from, to, out::write));
+                case "convert":
+                    if (args.length > 3) {
+                        return usage();
+                    }
+                    return convert(path, args.length == 3 ? Paths.get(args[2]) : null);
+                default:
+                    return usage();
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            return usage();
+        }
+    }
+
+    private static int usage() {
+        System.err.println("usage: AuditTool lookup <segment.bin|dir> <tradeId>");
+        System.err.println("       AuditTool range <segment.bin|dir> <from> <to>");
+        System.err.println("       AuditTool convert <segment.bin> [output]");
+        return 2;
+    }
+
+    private static int toStdout(Path path, Query query) throws IOException {
+        TextOutput out = new TextOutput(System.out);
+        for (Path segment : segments(path)) {
+            try (AuditBinaryReader reader = AuditBinaryReader.open(segment)) {
+                query.run(reader, out);
+            }
+        }
+        out.flush();
+        return 0;
+    }
+
+    private static int convert(Path segment, Path output) throws IOException {
+        if (output == null) {
+            String name = segment.getFileName().toString();
+            if (name.endsWith(AuditSegments.COMPRESSED_SUFFIX)) {
+                name = name.substring(0, name.length() - AuditSegments.COMPRESSED_SUFFIX.length());
+            }
+            output = segment.resolveSibling(name.substring(0, name.length() - AuditBinaryFormat.RECORDS_SUFFIX.length())
+                + AuditSegments.TEXT_SUFFIX);
+        }
+        try (AuditBinaryReader reader = AuditBinaryReader.open(segment);
+             OutputStream file = Files.newOutputStream(output)) {
+            TextOutput out = new TextOutput(file);
+            reader.forEach(out::write);
+            out.flush();
+            System.err.printf("%d records from %s written to %s%n", reader.getRecordCount(), segment, output);
+        }
+        return 0;
+    }
+
+    // A segment, or every binary segment in a directory in name (and so creation) order. An archived
+    // segment is read from its .bin.gz unless the archiver was interrupted before deleting the .bin.
+    private static List<Path> segments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(path);
+        }
+        Map<String, Path> result = new TreeMap<>();
+        try (Stream<Path> files = Files.list(path)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                String base = AuditSegments.segmentOf(name);
+                if (base == null) {
+                    return;
+                }
+                if (name.endsWith(AuditBinaryFormat.RECORDS_SUFFIX)) {
+                    result.put(base, file);
+                } else if (name.endsWith(AuditBinaryFormat.RECORDS_SUFFIX + AuditSegments.COMPRESSED_SUFFIX)) {
+                    result.putIfAbsent(base, file);
+                }
+            });
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private interface Query {
+        void run(AuditBinaryReader reader, TextOutput out) throws IOException;
+    }
+
+    // Encodes records with AuditLineEncoder into a reused buffer
+    private static final class TextOutput {
+        private final OutputStream out;
+        private ByteBuffer buffer;
+
+        TextOutput(OutputStream out) {
+            this.out = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+            this.buffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+        }
+
+        void write(AuditBinaryReader.Record r) throws IOException {
+            int maxLength = AuditLineEncoder.maxLength(r.symbol, r.price, r.trader, r.account, r.event, r.details);
+            if (buffer.remaining() < maxLength) {
+                drain();
+                if (buffer.capacity() < maxLength) {
+                    buffer = ByteBuffer.allocate(maxLength);
+                }
+            }
+            AuditLineEncoder.encode(buffer, r.timestampNanos, r.tradeIdHi, r.tradeIdLo, r.symbol, r.price,
+                r.quantity, r.trader, r.account, r.event, r.details);
+        }
+
+        private void drain() throws IOException {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.model.InternDictionary;
+import com.example.pubsub.model.TradeDictionaries;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.example.pubsub.compliance.AuditBinaryFormat.*;
+
+// Writes a binary segment (see AuditBinaryFormat). Each event is a 56-byte record of ids and
+// primitives; strings are written once per segment to the dictionary file. Only first use of a
+// string allocates. An append that throws can be retried: definitions it already staged are
+// remembered, and nothing of the record is staged unless all of it is.
+final class BinaryAuditSink implements AuditSink {
+    // Texts beyond this many are still defined, just not cached, so odd error messages cannot grow the map
+    private static final int MAX_CACHED_TEXTS = 65_536;
+    // Partial index blocks are flushed once they span this much event time
+    private static final long BLOCK_FLUSH_NANOS = 1_000_000_000L;
+
+    private final AuditJournal records;
+    private final AuditJournal dictionary;
+    private final AuditJournal index;
+    private final BitSet[] defined;
+    private final Map<String, Integer> texts;
+    private int nextTextId;
+    private long recordCount;
+
+    // Index block being built
+    private final long[] keys;
+    private int blockSize;
+    private long blockFirstRecord;
+    private long blockMinTimestamp;
+    private long blockMaxTimestamp;
+    private long blockMinIdHi;
+    private long blockMaxIdHi;
+
+    // base is the segment path without suffix
+    BinaryAuditSink(Path base, AuditDurability durability, long syncIntervalMillis) {
+        this.records = new AuditJournal(withSuffix(base, RECORDS_SUFFIX), durability, syncIntervalMillis,
+            AuditJournal.DEFAULT_BUFFER_SIZE);
+        this.dictionary = new AuditJournal(withSuffix(base, DICTIONARY_SUFFIX), durability, syncIntervalMillis,
+            64 * 1024);
+        // Rebuildable from the records, so never worth an fsync
+        this.index = new AuditJournal(withSuffix(base, INDEX_SUFFIX), AuditDurability.NONE, 0,
+            AuditJournal.DEFAULT_BUFFER_SIZE / 4);
+        if (records.size() != 0) {
+            close();
+            throw new IllegalStateException("Binary audit segment already exists: " + records.getFile());
+        }
+        this.defined = new BitSet[DICTIONARY_TEXT];
+        for (int i = 0; i < defined.length; i++) {
+            defined[i] = new BitSet();
+        }
+        this.texts = new HashMap<>();
+        this.keys = new long[MAX_BLOCK_RECORDS];
+        writeHeader(records, RECORDS_MAGIC);
+        writeHeader(dictionary, DICTIONARY_MAGIC);
+        writeHeader(index, INDEX_MAGIC);
+    }
+
+    static Path withSuffix(Path base, String suffix) {
+        return Paths.get(base.toString() + suffix);
+    }
+
+    private static void writeHeader(AuditJournal journal, int magic) {
+        journal.reserve(HEADER_BYTES).putInt(magic).putInt(VERSION);
+        journal.flush();
+    }
+
+    @Override
+    public void append(long timestampNanos, long tradeIdHi, long tradeIdLo, int symbolId, double price,
+                       int quantity, int traderId, int accountId, String event, String details) {
+        // A full block is written before anything of this event, so a failure here leaves no part of it staged
+        if (blockSize == MAX_BLOCK_RECORDS) {
+            flushBlock();
+        }
+        define(DICTIONARY_SYMBOL, symbolId, TradeDictionaries.SYMBOLS);
+        define(DICTIONARY_TRADER, traderId, TradeDictionaries.TRADERS);
+        define(DICTIONARY_ACCOUNT, accountId, TradeDictionaries.ACCOUNTS);
+        int eventId = textId(event);
+        int detailsId = textId(details);
+
+        ByteBuffer buffer = records.reserve(RECORD_BYTES);
+        buffer.putLong(timestampNanos)
+            .putLong(tradeIdHi)
+            .putLong(tradeIdLo)
+            .putDouble(price)
+            .putInt(quantity)
+            .putInt(symbolId)
+            .putInt(traderId)
+            .putInt(accountId)
+            .putInt(eventId)
+            .putInt(detailsId);
+        records.endRecord();
+
+        addToBlock(timestampNanos, tradeIdHi, tradeIdLo);
+        recordCount++;
+    }
+
+    private void define(byte dictionaryType, int id, InternDictionary source) {
+        if (id == InternDictionary.NULL_ID || defined[dictionaryType].get(id)) {
+            return;
+        }
+        writeDefinition(dictionaryType, id, source.lookup(id));
+        defined[dictionaryType].set(id);
+    }
+
+    private int textId(String text) {
+        if (text == null) {
+            return NULL_TEXT;
+        }
+        Integer cached = texts.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        int id = nextTextId++;
+        writeDefinition(DICTIONARY_TEXT, id, text);
+        if (texts.size() < MAX_CACHED_TEXTS) {
+            texts.put(text, id);
+        }
+        return id;
+    }
+
+    private void writeDefinition(byte dictionaryType, int id, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // append() copes with definitions larger than the journal buffer
+        dictionary.append(ByteBuffer.allocate(1 + 4 + 4 + bytes.length)
+            .put(dictionaryType)
+            .putInt(id)
+            .putInt(bytes.length)
+            .put(bytes)
+            .array());
+    }
+
+    private void addToBlock(long timestampNanos, long tradeIdHi, long tradeIdLo) {
+        if (blockSize == 0) {
+            blockFirstRecord = recordCount;
+            blockMinTimestamp = timestampNanos;
+            blockMaxTimestamp = timestampNanos;
+            blockMinIdHi = tradeIdHi;
+            blockMaxIdHi = tradeIdHi;
+        } else {
+            blockMinTimestamp = Math.min(blockMinTimestamp, timestampNanos);
+            blockMaxTimestamp = Math.max(blockMaxTimestamp, timestampNanos);
+            blockMinIdHi = Math.min(blockMinIdHi, tradeIdHi);
+            blockMaxIdHi = Math.max(blockMaxIdHi, tradeIdHi);
+        }
+        keys[blockSize] = indexKey(tradeIdHi, tradeIdLo) | blockSize;
+        blockSize++;
+    }
+
+    private void flushBlock() {
+        Arrays.sort(keys, 0, blockSize);
+        // One reservation for the whole block, so a failed spill never leaves half a block staged
+        ByteBuffer buffer = index.reserve(BLOCK_HEADER_BYTES + blockSize * Long.BYTES);
+        buffer.putLong(blockMinTimestamp)
+            .putLong(blockMaxTimestamp)
+            .putLong(blockMinIdHi)
+            .putLong(blockMaxIdHi)
+            .putLong(blockFirstRecord)
+            .putInt(blockSize);
+        for (int i = 0; i < blockSize; i++) {
+            buffer.putLong(keys[i]);
+        }
+        index.endRecord();
+        blockSize = 0;
+    }
+
+    // Definitions reach the file before the records that use them
+    @Override
+    public void endBatch() {
+        if (blockSize > 0 && blockMaxTimestamp - blockMinTimestamp >= BLOCK_FLUSH_NANOS) {
+            flushBlock();
+        }
+        dictionary.endBatch();
+        records.endBatch();
+        index.endBatch();
+    }
+
+    @Override
+    public void syncIfDue() {
+        dictionary.syncIfDue();
+        records.syncIfDue();
+    }
+
+    @Override
+    public AuditJournal getJournal() {
+        return records;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (blockSize > 0) {
+                flushBlock();
+            }
+        } finally {
+            dictionary.close();
+            records.close();
+            index.close();
+        }
+    }
+}
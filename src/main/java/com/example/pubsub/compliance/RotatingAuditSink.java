@@ -0,0 +1,140 @@
+package com.example.pubsub.compliance;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// Rolls to a new segment when the current one reaches the policy's size or age, checked once per
+// batch. Closed segments go to the AuditArchiver thread; the writer only ever opens and closes files.
+final class RotatingAuditSink implements AuditSink {
+    private final Path directory;
+    private final AuditRotationPolicy policy;
+    private final SegmentFactory factory;
+    private final AuditArchiver archiver;
+    private final long maxSegmentNanos;
+    private AuditSink current;
+    private String currentBase;
+    private long openedNanos;
+    private int segments;
+
+    RotatingAuditSink(Path directory, AuditRotationPolicy policy, SegmentFactory factory) {
+        this.directory = directory;
+        this.policy = policy;
+        this.factory = factory;
+        this.maxSegmentNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMaxSegmentMillis());
+        this.currentBase = AuditSegments.baseName(Instant.now());
+        this.current = openSegment(currentBase);
+        this.openedNanos = System.nanoTime();
+        this.segments = 1;
+        if (policy.archives()) {
+            this.archiver = new AuditArchiver(directory, policy);
+            archiver.setActiveSegment(currentBase);
+            archiver.start();
+        } else {
+            this.archiver = null;
+        }
+    }
+
+    @Override
+    public void append(long timestampNanos, long tradeIdHi, long tradeIdLo, int symbolId, double price,
+                       int quantity, int traderId, int accountId, String event, String details) {
+        current.append(timestampNanos, tradeIdHi, tradeIdLo, symbolId, price, quantity, traderId, accountId,
+            event, details);
+    }
+
+    @Override
+    public void endBatch() {
+        current.endBatch();
+        rollIfDue();
+    }
+
+    // Also runs while idle, so a quiet segment still closes on time
+    @Override
+    public void syncIfDue() {
+        current.syncIfDue();
+        rollIfDue();
+    }
+
+    private void rollIfDue() {
+        if (!policy.rolls()) {
+            return;
+        }
+        AuditJournal journal = current.getJournal();
+        boolean full = policy.getMaxSegmentBytes() > 0 && journal.getBytesWritten() >= policy.getMaxSegmentBytes();
+        // An empty segment is left open however old it gets, rather than rolling empty files
+        boolean expired = maxSegmentNanos > 0 && journal.getEvents() > 0
+            && System.nanoTime() - openedNanos >= maxSegmentNanos;
+        if (full || expired) {
+            roll();
+        }
+    }
+
+    // The next segment is opened before the current one is closed, so a failure to open leaves the
+    // logger writing where it was. Segments named at or after the active one are never archived.
+    private void roll() {
+        String nextBase = AuditSegments.baseName(Instant.now());
+        AuditSink next;
+        try {
+            next = openSegment(nextBase);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to roll audit segment, staying on " + currentBase + ": " + e.getMessage());
+            openedNanos = System.nanoTime();
+            return;
+        }
+        AuditSink previous = current;
+        String previousBase = currentBase;
+        current = next;
+        currentBase = nextBase;
+        openedNanos = System.nanoTime();
+        segments++;
+        try {
+            previous.close();
+        } catch (RuntimeException e) {
+            System.err.println("Error closing audit segment: " + e.getMessage());
+        }
+        AuditSegments.unmarkActive(directory, previousBase);
+        if (archiver != null) {
+            archiver.setActiveSegment(nextBase);
+        }
+    }
+
+    // Marked active before any of its files exist, so no archiver ever sees it unmarked while open
+    private AuditSink openSegment(String base) {
+        AuditSegments.markActive(directory, base);
+        try {
+            return factory.open(directory.resolve(base));
+        } catch (RuntimeException e) {
+            AuditSegments.unmarkActive(directory, base);
+            throw e;
+        }
+    }
+
+    @Override
+    public AuditJournal getJournal() {
+        return current.getJournal();
+    }
+
+    // Segments opened by this sink, including the current one
+    int getSegments() {
+        return segments;
+    }
+
+    // The archiver gets one last pass over the closed segments, including the final one, unless the
+    // JVM exits first; anything it misses is picked up when the next logger starts
+    @Override
+    public void close() {
+        try {
+            current.close();
+        } finally {
+            AuditSegments.unmarkActive(directory, currentBase);
+            if (archiver != null) {
+                archiver.finish();
+            }
+        }
+    }
+
+    interface SegmentFactory {
+        // base is the segment path without suffix
+        AuditSink open(Path base);
+    }
+}
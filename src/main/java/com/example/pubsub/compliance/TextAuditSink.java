@@ -0,0 +1,52 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.model.TradeDictionaries;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+// Pipe-delimited text, encoded straight into the journal buffer
+final class TextAuditSink implements AuditSink {
+    private final AuditJournal journal;
+
+    TextAuditSink(Path file, AuditDurability durability, long syncIntervalMillis) {
+        this.journal = new AuditJournal(file, durability, syncIntervalMillis, AuditJournal.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public void append(long timestampNanos, long tradeIdHi, long tradeIdLo, int symbolId, double price,
+                       int quantity, int traderId, int accountId, String event, String details) {
+        String symbol = TradeDictionaries.SYMBOLS.lookup(symbolId);
+        String trader = TradeDictionaries.TRADERS.lookup(traderId);
+        String account = TradeDictionaries.ACCOUNTS.lookup(accountId);
+        ByteBuffer buffer = journal.reserve(AuditLineEncoder.maxLength(symbol, price, trader, account, event, details));
+        try {
+            AuditLineEncoder.encode(buffer, timestampNanos, tradeIdHi, tradeIdLo, symbol, price, quantity, trader,
+                account, event, details);
+        } catch (RuntimeException e) {
+            // No half line is left behind for the retry to follow
+            journal.abortRecord();
+            throw e;
+        }
+        journal.endRecord();
+    }
+
+    @Override
+    public void endBatch() {
+        journal.endBatch();
+    }
+
+    @Override
+    public void syncIfDue() {
+        journal.syncIfDue();
+    }
+
+    @Override
+    public AuditJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.pubsub.exceptions;
+
+public class AlertException extends TradeProcessingException {
+    public AlertException(String message) {
+        super(message);
+    }
+
+    public AlertException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.pubsub.latency;
+
+import com.example.pubsub.exceptions.AlertException;
+import com.example.pubsub.model.MarketTrade;
+import com.example.pubsub.model.TradeRecord;
+import com.example.pubsub.monitoring.LatencyMonitor;
+import com.example.pubsub.monitoring.LatencyTimer;
+
+// One worker of a pipeline stage. Each pass takes every slot the barrier reports as available,
+// handles the ones this worker owns (sequence % workers == ordinal) and then moves its sequence
+// once for the whole batch, which is what releases the slots to the next stage.
+public class BatchStageWorker implements Runnable {
+    @FunctionalInterface
+    public interface Handler {
+        void onTrade(MarketTrade trade, long sequence);
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(TradeRecord record, long sequence);
+    }
+
+    // What the worker does with one owned sequence, independent of how the ring stores its slots
+    private interface SequenceHandler {
+        void onSequence(long sequence);
+    }
+
+    private final String stage;
+    private final LatencyTimer timer;
+    private final SequenceHandler sequenceHandler;
+    private final Runnable signalConsumers;
+    private final SequenceBarrier barrier;
+    private final Sequence sequence;
+    private final int ordinal;
+    private final int workers;
+
+    public BatchStageWorker(String stage, RingBuffer ringBuffer, SequenceBarrier barrier,
+                            Sequence sequence, int ordinal, int workers, Handler handler) {
+        this(stage, barrier, sequence, ordinal, workers,
+            seq -> handler.onTrade(ringBuffer.get(seq), seq), ringBuffer::signalConsumers);
+    }
+
+    // Off-heap slots: the worker owns one flyweight and re-points it at each sequence it handles
+    public BatchStageWorker(String stage, OffHeapTradeRing ring, SequenceBarrier barrier,
+                            Sequence sequence, int ordinal, int workers, RecordHandler handler) {
+        this(stage, barrier, sequence, ordinal, workers, recordHandler(ring, handler), ring::signalConsumers);
+    }
+
+    private BatchStageWorker(String stage, SequenceBarrier barrier, Sequence sequence, int ordinal,
+                             int workers, SequenceHandler sequenceHandler, Runnable signalConsumers) {
+        this.stage = stage;
+        // Resolved here so an unknown stage name fails when the pipeline is built
+        this.timer = LatencyMonitor.stage(stage);
+        this.barrier = barrier;
+        this.sequence = sequence;
+        this.ordinal = ordinal;
+        this.workers = workers;
+        this.sequenceHandler = sequenceHandler;
+        this.signalConsumers = signalConsumers;
+    }
+
+    private static SequenceHandler recordHandler(OffHeapTradeRing ring, RecordHandler handler) {
+        TradeRecord record = new TradeRecord();
+        return seq -> handler.onRecord(ring.wrap(seq, record), seq);
+    }
+
+    @Override
+    public void run() {
+        long next = sequence.get() + 1;
+        while (true) {
+            try {
+                long available = barrier.waitFor(next);
+                if (available < next) {
+                    continue;
+                }
+
+                long batchStart = System.nanoTime();
+                boolean owned = false;
+                for (long seq = next; seq <= available; seq++) {
+                    if (seq % workers == ordinal) {
+                        owned = true;
+                        try {
+                            sequenceHandler.onSequence(seq);
+                        } catch (RuntimeException e) {
+                            // Never stall the ring on a bad trade; the handler owns error reporting
+                            System.err.printf("%s-%d: error on sequence %d: %s%n", stage, ordinal, seq, e.getMessage());
+                        }
+                    }
+                }
+                // A batch made up only of other workers' slots did no work here; recording it would
+                // flood the stage timer with near-zero samples
+                if (owned) {
+                    timer.recordSince(batchStart);
+                }
+
+                // Publish once per batch; slots owned by the other workers are gated by their sequences
+                sequence.set(available);
+                signalConsumers.run();
+                next = available + 1;
+            } catch (AlertException e) {
+                break;
+            }
+        }
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public Sequence getSequence() {
+        return sequence;
+    }
+}
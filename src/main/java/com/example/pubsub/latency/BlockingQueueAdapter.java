@@ -0,0 +1,146 @@
+package com.example.pubsub.latency;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Exposes a padded array queue as a BlockingQueue so existing BlockingQueue consumers (actor pools)
+// can switch over without code changes. Blocking calls wait through the queue's WaitStrategy.
+// Iteration, and with it contains() and toString(), works on a weakly consistent snapshot, like
+// the java.util.concurrent queues. Removing an element other than the head would need a lock the
+// lock-free queues do not have, so remove(Object) and Iterator.remove() are not supported.
+public class BlockingQueueAdapter<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private static final long TIMED_PARK_NANOS = 10_000;
+
+    private final PaddedArrayQueue<E> queue;
+
+    public BlockingQueueAdapter(PaddedArrayQueue<E> queue) {
+        this.queue = queue;
+    }
+
+    // Picks the cheapest queue that is still safe for the given number of producer and consumer threads
+    public static <E> BlockingQueueAdapter<E> forConcurrency(int producers, int consumers, int capacity,
+                                                            WaitStrategy waitStrategy) {
+        PaddedArrayQueue<E> queue;
+        if (consumers > 1) {
+            queue = new MpmcArrayQueue<>(capacity, waitStrategy);
+        } else if (producers > 1) {
+            queue = new MpscArrayQueue<>(capacity, waitStrategy);
+        } else {
+            queue = new SpscArrayQueue<>(capacity, waitStrategy);
+        }
+        return new BlockingQueueAdapter<>(queue);
+    }
+
+    @Override
+    public boolean offer(E element) {
+        return queue.offer(element);
+    }
+
+    @Override
+    public E poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public void put(E element) throws InterruptedException {
+        queue.put(element);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return queue.take();
+    }
+
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!queue.offer(element)) {
+            if (!pause(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E element;
+        while ((element = queue.poll()) == null) {
+            if (!pause(deadline)) {
+                return null;
+            }
+        }
+        return element;
+    }
+
+    private static boolean pause(long deadline) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return false;
+        }
+        LockSupport.parkNanos(Math.min(remaining, TIMED_PARK_NANOS));
+        return true;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        if (target == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = queue.poll()) != null) {
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return queue.capacity() - queue.size();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableList(queue.snapshot()).iterator();
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        throw new UnsupportedOperationException("lock-free array queues only remove from the head");
+    }
+
+    public PaddedArrayQueue<E> getQueue() {
+        return queue;
+    }
+}
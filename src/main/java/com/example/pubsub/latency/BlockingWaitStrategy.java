@@ -0,0 +1,51 @@
+package com.example.pubsub.latency;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Sleeps on a condition until whoever moves the sequence signals. Lowest CPU use, highest wake-up
+// latency. Signallers only take the lock when a waiter has announced itself.
+public final class BlockingWaitStrategy implements WaitStrategy {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition moved = lock.newCondition();
+    private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+
+    @Override
+    public long waitFor(long sequence, ReadableSequence dependentSequence, SequenceBarrier barrier)
+            throws InterruptedException {
+        long available = dependentSequence.get();
+        if (available >= sequence) {
+            return available;
+        }
+        lock.lock();
+        try {
+            while ((available = dependentSequence.get()) < sequence) {
+                if (barrier != null) {
+                    barrier.checkAlert();
+                }
+                // Announce before the final check so a concurrent signaller cannot slip past us
+                signalNeeded.set(true);
+                if ((available = dependentSequence.get()) >= sequence) {
+                    break;
+                }
+                moved.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        if (signalNeeded.getAndSet(false)) {
+            lock.lock();
+            try {
+                moved.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
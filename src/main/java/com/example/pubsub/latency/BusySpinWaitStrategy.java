@@ -0,0 +1,23 @@
+package com.example.pubsub.latency;
+
+// Lowest latency, burns a full core per waiting thread
+public final class BusySpinWaitStrategy implements WaitStrategy {
+    @Override
+    public long waitFor(long sequence, ReadableSequence dependentSequence, SequenceBarrier barrier)
+            throws InterruptedException {
+        long available;
+        while ((available = dependentSequence.get()) < sequence) {
+            if (barrier != null) {
+                barrier.checkAlert();
+            } else if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.onSpinWait();
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
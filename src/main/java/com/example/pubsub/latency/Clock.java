@@ -0,0 +1,23 @@
+package com.example.pubsub.latency;
+
+import java.time.Instant;
+
+// Wall-clock source for trade and audit timestamps, as epoch nanoseconds in a primitive long so
+// reading the time never allocates. Use System.nanoTime() for durations, not this.
+public interface Clock {
+    long nanos();
+
+    default long millis() {
+        return nanos() / 1_000_000;
+    }
+
+    // For output edges only
+    static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+            Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    static long toEpochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.pubsub.latency;
+
+// Process-wide clock for the trade model and audit trail. Chosen with -Dpubsub.clock=precise|cached
+// (default precise); replay and tests install a ManualClock with use().
+public final class Clocks {
+    private static volatile Clock current = fromProperty();
+
+    private Clocks() {
+    }
+
+    public static Clock get() {
+        return current;
+    }
+
+    public static long nanos() {
+        return current.nanos();
+    }
+
+    public static void use(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        current = clock;
+    }
+
+    private static Clock fromProperty() {
+        String mode = System.getProperty("pubsub.clock", "precise").trim().toLowerCase();
+        switch (mode) {
+            case "precise":
+                return new PreciseClock();
+            case "cached":
+                return new CachedClock();
+            default:
+                throw new IllegalArgumentException("Unknown clock mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.pubsub.latency;
+
+// Read-only view over several sequences that reports the slowest one
+public final class FixedSequenceGroup implements ReadableSequence {
+    private final Sequence[] sequences;
+
+    public FixedSequenceGroup(Sequence... sequences) {
+        this.sequences = sequences.clone();
+    }
+
+    @Override
+    public long get() {
+        return Sequencer.getMinimumSequence(sequences, Long.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
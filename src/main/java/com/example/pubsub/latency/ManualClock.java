@@ -0,0 +1,25 @@
+package com.example.pubsub.latency;
+
+// Deterministic clock for replay and tests: time moves only when told to
+public final class ManualClock implements Clock {
+    private volatile long now;
+
+    public ManualClock(long epochNanos) {
+        this.now = epochNanos;
+    }
+
+    @Override
+    public long nanos() {
+        return now;
+    }
+
+    public void set(long epochNanos) {
+        now = epochNanos;
+    }
+
+    // Single writer assumed, as in a replay driver
+    public long advance(long deltaNanos) {
+        now += deltaNanos;
+        return now;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.pubsub.latency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Multiple producers and consumers (Vyukov bounded queue). Every slot carries its own sequence
+// telling whether it is free for the producer of this lap or full for the consumer of this lap.
+public class MpmcArrayQueue<E> extends PaddedArrayQueue<E> {
+    private final AtomicLongArray slotSequences;
+
+    public MpmcArrayQueue(int capacity) {
+        this(capacity, new BusySpinWaitStrategy());
+    }
+
+    public MpmcArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+        this.slotSequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            slotSequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E element) {
+        checkNotNull(element);
+        while (true) {
+            final long p = producerIndex.get();
+            final int index = (int) p & mask;
+            final long difference = slotSequences.get(index) - p;
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(p, p + 1)) {
+                    buffer.lazySet(index, element);
+                    slotSequences.lazySet(index, p + 1);
+                    waitStrategy.signalAllWhenBlocking();
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false; // Queue is full
+            }
+            // Otherwise another producer won the slot; retry with the new index
+        }
+    }
+
+    @Override
+    public E poll() {
+        while (true) {
+            final long c = consumerIndex.get();
+            final int index = (int) c & mask;
+            final long difference = slotSequences.get(index) - (c + 1);
+            if (difference == 0) {
+                if (consumerIndex.compareAndSet(c, c + 1)) {
+                    E element = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    slotSequences.lazySet(index, c + capacity);
+                    waitStrategy.signalAllWhenBlocking();
+                    return element;
+                }
+            } else if (difference < 0) {
+                return null; // Queue is empty
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.pubsub.latency;
+
+// Multiple producers claim slots with a CAS on the producer index; a single consumer drains them.
+// A claimed slot stays null until its producer stores into it, which is how the consumer tells
+// published slots from in-flight ones.
+public class MpscArrayQueue<E> extends PaddedArrayQueue<E> {
+    public MpscArrayQueue(int capacity) {
+        this(capacity, new BusySpinWaitStrategy());
+    }
+
+    public MpscArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    public boolean offer(E element) {
+        checkNotNull(element);
+        long p;
+        do {
+            p = producerIndex.get();
+            if (p - consumerIndex.get() >= capacity) {
+                return false; // Queue is full
+            }
+        } while (!producerIndex.compareAndSet(p, p + 1));
+        buffer.lazySet((int) p & mask, element);
+        waitStrategy.signalAllWhenBlocking();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        final long c = consumerIndex.get();
+        final int index = (int) c & mask;
+        E element = buffer.get(index);
+        if (element == null) {
+            if (c >= producerIndex.get()) {
+                return null; // Queue is empty
+            }
+            // Claimed but not yet stored; the producer is a few instructions away
+            while ((element = buffer.get(index)) == null) {
+                Thread.onSpinWait();
+            }
+        }
+        buffer.lazySet(index, null);
+        consumerIndex.set(c + 1);
+        waitStrategy.signalAllWhenBlocking();
+        return element;
+    }
+}
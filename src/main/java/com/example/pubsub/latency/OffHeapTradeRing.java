@@ -0,0 +1,81 @@
+package com.example.pubsub.latency;
+
+import com.example.pubsub.model.TradeRecord;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Off-heap counterpart of RingBuffer: every slot is a fixed two-cache-line TradeRecord region of one
+// aligned direct buffer instead of a reference to a MarketTrade. Stages read and write
+// slots in place through their own TradeRecord flyweight, so live trades are invisible to the GC
+// and a stage walking a batch touches consecutive cache lines. Claiming, publishing and gating
+// are the same Sequencer protocol as RingBuffer.
+public class OffHeapTradeRing {
+    private final int capacity;
+    private final int mask;
+    private final ByteBuffer slots;
+    private final Sequencer sequencer;
+
+    public OffHeapTradeRing(int capacity) {
+        this(capacity, new BusySpinWaitStrategy());
+    }
+
+    public OffHeapTradeRing(int capacity, WaitStrategy waitStrategy) {
+        this.capacity = nextPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        // Over-allocate one slot so the usable region can start on a cache-line boundary
+        this.slots = ByteBuffer.allocateDirect((this.capacity + 1) * TradeRecord.SLOT_SIZE)
+            .alignedSlice(TradeRecord.SLOT_SIZE)
+            .order(ByteOrder.nativeOrder());
+        this.sequencer = new Sequencer(this.capacity, waitStrategy);
+    }
+
+    // Points the caller's flyweight at the slot for this sequence
+    public TradeRecord wrap(long sequence, TradeRecord record) {
+        return record.wrap(slots, ((int) sequence & mask) * TradeRecord.SLOT_SIZE);
+    }
+
+    public long next() {
+        return sequencer.next();
+    }
+
+    // -1 if the slowest stage has not freed a slot
+    public long tryNext() {
+        return sequencer.tryNext();
+    }
+
+    public void publish(long sequence) {
+        sequencer.publish(sequence);
+    }
+
+    public SequenceBarrier newBarrier(Sequence... dependentSequences) {
+        return sequencer.newBarrier(dependentSequences);
+    }
+
+    public void addGatingSequences(Sequence... sequences) {
+        sequencer.addGatingSequences(sequences);
+    }
+
+    public boolean removeGatingSequence(Sequence sequence) {
+        return sequencer.removeGatingSequence(sequence);
+    }
+
+    public void signalConsumers() {
+        sequencer.getWaitStrategy().signalAllWhenBlocking();
+    }
+
+    public long getCursor() {
+        return sequencer.getCursor();
+    }
+
+    public long remainingCapacity() {
+        return sequencer.remainingCapacity();
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        return 1 << (32 - Integer.numberOfLeadingZeros(value - 1));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
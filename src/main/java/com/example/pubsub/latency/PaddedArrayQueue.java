@@ -0,0 +1,106 @@
+package com.example.pubsub.latency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Base for the bounded array queues. Producer and consumer indexes are counts of claimed and
+// consumed slots, each in its own padded Sequence so the two sides never share a cache line.
+// Slots are reused in place, so offer/poll never allocate.
+public abstract class PaddedArrayQueue<E> {
+    protected final AtomicReferenceArray<E> buffer;
+    protected final int capacity;
+    protected final int mask;
+    protected final Sequence producerIndex = new Sequence(0);
+    protected final Sequence consumerIndex = new Sequence(0);
+    protected final WaitStrategy waitStrategy;
+
+    protected PaddedArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.waitStrategy = waitStrategy;
+    }
+
+    // Non-blocking; false when the queue is full
+    public abstract boolean offer(E element);
+
+    // Non-blocking; null when the queue is empty
+    public abstract E poll();
+
+    public E take() throws InterruptedException {
+        E element;
+        while ((element = poll()) == null) {
+            waitStrategy.waitFor(consumerIndex.get() + 1, producerIndex, null);
+        }
+        return element;
+    }
+
+    public void put(E element) throws InterruptedException {
+        while (!offer(element)) {
+            waitStrategy.waitFor(producerIndex.get() - capacity + 1, consumerIndex, null);
+        }
+    }
+
+    // The element poll() would return, without consuming it; null when empty. With several consumers
+    // it may already be taken by the time the caller looks at it.
+    public E peek() {
+        while (true) {
+            final long c = consumerIndex.get();
+            if (c >= producerIndex.get()) {
+                return null;
+            }
+            E element = buffer.get((int) c & mask);
+            // Unchanged consumer index: the slot still holds the head, not a later lap's element
+            if (element != null && consumerIndex.get() == c) {
+                return element;
+            }
+            // Claimed but not yet stored, or consumed meanwhile
+            Thread.onSpinWait();
+        }
+    }
+
+    // Weakly consistent copy of the elements from head to tail: each one was in the queue at some
+    // point during the call, none appears twice, and elements offered during the call may be missing
+    public List<E> snapshot() {
+        final long c = consumerIndex.get();
+        final long p = Math.min(producerIndex.get(), c + capacity);
+        List<E> elements = new ArrayList<>((int) (p - c));
+        for (long i = c; i < p; i++) {
+            E element = buffer.get((int) i & mask);
+            // Skip in-flight slots and slots consumed since the indexes were read
+            if (element != null && consumerIndex.get() <= i) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    protected static void checkNotNull(Object element) {
+        if (element == null) {
+            throw new NullPointerException("Queue elements cannot be null");
+        }
+    }
+
+    public int size() {
+        // Read consumer first so a concurrent poll cannot make the result negative
+        long consumed = consumerIndex.get();
+        long produced = producerIndex.get();
+        return (int) Math.max(0, Math.min(capacity, produced - consumed));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.pubsub.latency;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Spins, then yields, then parks for a short fixed interval. Idle threads cost almost nothing,
+// at the price of up to parkNanos (plus timer slack) extra latency after a quiet period.
+public final class ParkingWaitStrategy implements WaitStrategy {
+    private static final int DEFAULT_SPIN_TRIES = 100;
+    private static final int DEFAULT_YIELD_TRIES = 100;
+    private static final long DEFAULT_PARK_NANOS = 50_000;
+
+    private final int spinTries;
+    private final int yieldTries;
+    private final long parkNanos;
+
+    public ParkingWaitStrategy() {
+        this(DEFAULT_SPIN_TRIES, DEFAULT_YIELD_TRIES, DEFAULT_PARK_NANOS);
+    }
+
+    public ParkingWaitStrategy(int spinTries, int yieldTries, long parkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public long waitFor(long sequence, ReadableSequence dependentSequence, SequenceBarrier barrier)
+            throws InterruptedException {
+        int counter = spinTries + yieldTries;
+        long available;
+        while ((available = dependentSequence.get()) < sequence) {
+            if (barrier != null) {
+                barrier.checkAlert();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (counter > yieldTries) {
+                counter--;
+                Thread.onSpinWait();
+            } else if (counter > 0) {
+                counter--;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.pubsub.latency;
+
+import java.time.Instant;
+import java.util.concurrent.locks.LockSupport;
+
+// Nanosecond-resolution epoch time from System.nanoTime() plus an offset calibrated against the
+// wall clock. Reading it never allocates. A calibration brackets one wall-clock read between two
+// nanoTime reads and keeps the tightest of a few tries, so the offset is off by at most half that
+// bracket plus the wall clock's own resolution (1μs on Linux). A daemon thread recalibrates every
+// interval, which bounds nanoTime drift and picks up NTP corrections; each recalibration may step
+// the clock, so it is only monotonic between them. Resolution is nanoseconds, accuracy is not.
+public final class PreciseClock implements Clock, AutoCloseable {
+    public static final long DEFAULT_RECALIBRATION_NANOS = 1_000_000_000L;
+    private static final int CALIBRATION_SAMPLES = 5;
+
+    private final long recalibrationNanos;
+    private final Thread calibrator;
+    private volatile long offset;
+    private volatile long calibrationErrorNanos;
+    private volatile boolean running;
+
+    public PreciseClock() {
+        this(DEFAULT_RECALIBRATION_NANOS);
+    }
+
+    // 0 disables background recalibration; recalibrate() can still be called directly
+    public PreciseClock(long recalibrationNanos) {
+        this.recalibrationNanos = recalibrationNanos;
+        recalibrate();
+        if (recalibrationNanos > 0) {
+            this.running = true;
+            this.calibrator = new Thread(this::calibrate, "clock-calibrator");
+            this.calibrator.setDaemon(true);
+            this.calibrator.start();
+        } else {
+            this.calibrator = null;
+        }
+    }
+
+    private void calibrate() {
+        while (running) {
+            LockSupport.parkNanos(recalibrationNanos);
+            if (running) {
+                recalibrate();
+            }
+        }
+    }
+
+    public void recalibrate() {
+        long bestSpan = Long.MAX_VALUE;
+        long bestOffset = 0;
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            long before = System.nanoTime();
+            Instant wall = Instant.now();
+            long after = System.nanoTime();
+            long span = after - before;
+            if (span < bestSpan) {
+                bestSpan = span;
+                bestOffset = Clock.toEpochNanos(wall) - (before + span / 2);
+            }
+        }
+        offset = bestOffset;
+        calibrationErrorNanos = bestSpan / 2;
+    }
+
+    @Override
+    public long nanos() {
+        return System.nanoTime() + offset;
+    }
+
+    // Bound on the offset error from the last calibration, excluding the wall clock's resolution
+    public long getCalibrationErrorNanos() {
+        return calibrationErrorNanos;
+    }
+
+    public long getRecalibrationNanos() {
+        return recalibrationNanos;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (calibrator != null) {
+            LockSupport.unpark(calibrator);
+        }
+    }
+}
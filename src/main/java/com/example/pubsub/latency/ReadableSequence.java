@@ -0,0 +1,6 @@
+package com.example.pubsub.latency;
+
+// The position a consumer waits on: a single Sequence, or the slowest of several
+public interface ReadableSequence {
+    long get();
+}
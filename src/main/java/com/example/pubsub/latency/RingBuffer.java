@@ -1,76 +1,88 @@
 package com.example.pubsub.latency;
 
 import com.example.pubsub.model.MarketTrade;
-import java.util.concurrent.atomic.AtomicLongArray;
-import java.util.concurrent.atomic.AtomicReferenceArray;
-import sun.misc.Unsafe;
-import java.lang.reflect.Field;
 
+// Preallocated trade slots driven by a Sequencer. Every processing stage reads the same slot in
+// turn, gated by the stage before it, so trades are never copied between buffers.
 public class RingBuffer {
-    private static final Unsafe UNSAFE;
     private final int capacity;
     private final int mask;
-    private final AtomicReferenceArray<MarketTrade> buffer;
-    private final AtomicLongArray sequences;
-    private final long waitSpinCount;
-    
-    static {
-        try {
-            Field f = Unsafe.class.getDeclaredField("theUnsafe");
-            f.setAccessible(true);
-            UNSAFE = (Unsafe) f.get(null);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-    
+    private final MarketTrade[] entries;
+    private final Sequencer sequencer;
+
     public RingBuffer(int capacity) {
+        this(capacity, new BusySpinWaitStrategy());
+    }
+
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
         this.capacity = nextPowerOfTwo(capacity);
         this.mask = this.capacity - 1;
-        this.buffer = new AtomicReferenceArray<>(this.capacity);
-        this.sequences = new AtomicLongArray(this.capacity);
-        this.waitSpinCount = 1000; // Configurable spin wait
-        
-        // Initialize sequences
-        for (int i = 0; i < this.capacity; i++) {
-            sequences.set(i, i);
-        }
+        this.entries = new MarketTrade[this.capacity];
+        this.sequencer = new Sequencer(this.capacity, waitStrategy);
     }
-    
-    public boolean offer(MarketTrade trade, long sequence) {
-        final int index = (int) (sequence & mask);
-        
-        // Spin until slot is available
-        for (long i = 0; i < waitSpinCount; i++) {
-            if (sequences.get(index) == sequence - capacity) {
-                buffer.set(index, trade);
-                sequences.set(index, sequence);
-                return true;
-            }
-            UNSAFE.loadFence(); // Memory barrier
-        }
-        return false;
-    }
-    
-    public MarketTrade poll(long sequence) {
-        final int index = (int) (sequence & mask);
-        
-        // Spin until data is available
-        for (long i = 0; i < waitSpinCount; i++) {
-            if (sequences.get(index) == sequence) {
-                MarketTrade trade = buffer.get(index);
-                sequences.set(index, sequence + capacity);
-                return trade;
-            }
-            UNSAFE.loadFence(); // Memory barrier
+
+    // Claim, write and publish in one go; false if the slowest stage has not freed a slot
+    public boolean offer(MarketTrade trade) {
+        long sequence = sequencer.tryNext();
+        if (sequence < 0) {
+            return false;
         }
-        return null;
+        entries[(int) sequence & mask] = trade;
+        sequencer.publish(sequence);
+        return true;
+    }
+
+    public long next() {
+        return sequencer.next();
+    }
+
+    public long tryNext() {
+        return sequencer.tryNext();
+    }
+
+    // Slot writes need no fences of their own: publish() orders them for every consumer
+    public void set(long sequence, MarketTrade trade) {
+        entries[(int) sequence & mask] = trade;
+    }
+
+    public MarketTrade get(long sequence) {
+        return entries[(int) sequence & mask];
     }
-    
+
+    public void publish(long sequence) {
+        sequencer.publish(sequence);
+    }
+
+    public SequenceBarrier newBarrier(Sequence... dependentSequences) {
+        return sequencer.newBarrier(dependentSequences);
+    }
+
+    // The final stage's sequences gate producers so they cannot overwrite unprocessed slots
+    public void addGatingSequences(Sequence... sequences) {
+        sequencer.addGatingSequences(sequences);
+    }
+
+    public boolean removeGatingSequence(Sequence sequence) {
+        return sequencer.removeGatingSequence(sequence);
+    }
+
+    // Stages call this after moving their sequence so blocked downstream stages wake up
+    public void signalConsumers() {
+        sequencer.getWaitStrategy().signalAllWhenBlocking();
+    }
+
+    public long getCursor() {
+        return sequencer.getCursor();
+    }
+
+    public long remainingCapacity() {
+        return sequencer.remainingCapacity();
+    }
+
     private static int nextPowerOfTwo(int value) {
         return 1 << (32 - Integer.numberOfLeadingZeros(value - 1));
     }
-    
+
     public int capacity() {
         return capacity;
     }
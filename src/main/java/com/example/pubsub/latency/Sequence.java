@@ -0,0 +1,65 @@
+package com.example.pubsub.latency;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Padding on both sides keeps each hot sequence on its own cache line
+abstract class SequenceLhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+abstract class SequenceRhsPadding extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+}
+
+public class Sequence extends SequenceRhsPadding implements ReadableSequence {
+    public static final long INITIAL_VALUE = -1L;
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public Sequence() {
+        this(INITIAL_VALUE);
+    }
+
+    public Sequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+
+    @Override
+    public long get() {
+        return value;
+    }
+
+    // Ordered store: cheaper than a volatile write, still publishes everything written before it
+    public void set(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    public void setVolatile(long newValue) {
+        value = newValue;
+    }
+
+    public boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+
+    public long addAndGet(long increment) {
+        return (long) VALUE.getAndAdd(this, increment) + increment;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
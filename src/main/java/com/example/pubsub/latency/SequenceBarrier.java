@@ -0,0 +1,57 @@
+package com.example.pubsub.latency;
+
+import com.example.pubsub.exceptions.AlertException;
+
+// Gate for one consumer stage: waits until the given sequence is published and, for later stages,
+// processed by every consumer of the stage before it
+public final class SequenceBarrier {
+    private final Sequencer sequencer;
+    private final WaitStrategy waitStrategy;
+    private final ReadableSequence dependentSequence;
+    private volatile boolean alerted;
+
+    SequenceBarrier(Sequencer sequencer, WaitStrategy waitStrategy, Sequence cursor,
+                    Sequence[] dependentSequences) {
+        this.sequencer = sequencer;
+        this.waitStrategy = waitStrategy;
+        if (dependentSequences.length == 0) {
+            this.dependentSequence = cursor;
+        } else if (dependentSequences.length == 1) {
+            this.dependentSequence = dependentSequences[0];
+        } else {
+            this.dependentSequence = new FixedSequenceGroup(dependentSequences);
+        }
+    }
+
+    // Returns the highest sequence that can be consumed, which may be well past the one asked for
+    public long waitFor(long sequence) {
+        checkAlert();
+        long available;
+        try {
+            available = waitStrategy.waitFor(sequence, dependentSequence, this);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AlertException("Interrupted while waiting for sequence " + sequence, e);
+        }
+        return sequencer.getHighestPublishedSequence(sequence, available);
+    }
+
+    public void alert() {
+        alerted = true;
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public void clearAlert() {
+        alerted = false;
+    }
+
+    public boolean isAlerted() {
+        return alerted;
+    }
+
+    public void checkAlert() {
+        if (alerted) {
+            throw new AlertException("Sequence barrier alerted");
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.pubsub.latency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Multi-producer claim/publish sequencer. Producers claim slots with a CAS on the cursor and mark
+// each one available individually, so consumers never see a claimed but unwritten slot.
+// Producers cannot wrap past the slowest gating (last stage) consumer.
+public class Sequencer {
+    private final int bufferSize;
+    private final int indexMask;
+    private final int indexShift;
+    private final Sequence cursor;
+    private final Sequence gatingSequenceCache;
+    // Per-slot round number of the last publish, -1 until the slot is first used
+    private final AtomicIntegerArray availableBuffer;
+    private final WaitStrategy waitStrategy;
+    private volatile Sequence[] gatingSequences;
+
+    public Sequencer(int bufferSize) {
+        this(bufferSize, new BusySpinWaitStrategy());
+    }
+
+    public Sequencer(int bufferSize, WaitStrategy waitStrategy) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of 2");
+        }
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.cursor = new Sequence();
+        this.gatingSequenceCache = new Sequence();
+        this.availableBuffer = new AtomicIntegerArray(bufferSize);
+        this.waitStrategy = waitStrategy;
+        this.gatingSequences = new Sequence[0];
+        for (int i = 0; i < bufferSize; i++) {
+            availableBuffer.set(i, -1);
+        }
+    }
+
+    public long next() {
+        return next(1);
+    }
+
+    // Claims n slots, spinning while the ring is full
+    public long next(int n) {
+        checkBatchSize(n);
+        while (true) {
+            long current = cursor.get();
+            long next = current + n;
+            if (hasCapacity(current, next)) {
+                if (cursor.compareAndSet(current, next)) {
+                    return next;
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    public long tryNext() {
+        return tryNext(1);
+    }
+
+    // Claims n slots or returns -1 straight away if the ring is full
+    public long tryNext(int n) {
+        checkBatchSize(n);
+        while (true) {
+            long current = cursor.get();
+            long next = current + n;
+            if (!hasCapacity(current, next)) {
+                return -1;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private boolean hasCapacity(long current, long next) {
+        long wrapPoint = next - bufferSize;
+        long cachedGating = gatingSequenceCache.get();
+        if (wrapPoint > cachedGating || cachedGating > current) {
+            long gating = getMinimumSequence(gatingSequences, current);
+            gatingSequenceCache.set(gating);
+            return wrapPoint <= gating;
+        }
+        return true;
+    }
+
+    private void checkBatchSize(int n) {
+        if (n < 1 || n > bufferSize) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + bufferSize);
+        }
+    }
+
+    public void publish(long sequence) {
+        availableBuffer.lazySet(index(sequence), round(sequence));
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public void publish(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            availableBuffer.lazySet(index(sequence), round(sequence));
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public boolean isAvailable(long sequence) {
+        return availableBuffer.get(index(sequence)) == round(sequence);
+    }
+
+    // Producers publish out of order; consumers may only advance over a gap-free run
+    public long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return availableSequence;
+    }
+
+    public synchronized void addGatingSequences(Sequence... sequences) {
+        long position = cursor.get();
+        Sequence[] updated = Arrays.copyOf(gatingSequences, gatingSequences.length + sequences.length);
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i].set(position);
+            updated[gatingSequences.length + i] = sequences[i];
+        }
+        gatingSequences = updated;
+    }
+
+    public synchronized boolean removeGatingSequence(Sequence sequence) {
+        Sequence[] current = gatingSequences;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == sequence) {
+                Sequence[] updated = new Sequence[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                gatingSequences = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public SequenceBarrier newBarrier(Sequence... dependentSequences) {
+        return new SequenceBarrier(this, waitStrategy, cursor, dependentSequences);
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public long remainingCapacity() {
+        long consumed = getMinimumSequence(gatingSequences, cursor.get());
+        return bufferSize - (cursor.get() - consumed);
+    }
+
+    public static long getMinimumSequence(Sequence[] sequences, long minimum) {
+        for (Sequence sequence : sequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    private int index(long sequence) {
+        return (int) sequence & indexMask;
+    }
+
+    private int round(long sequence) {
+        return (int) (sequence >>> indexShift);
+    }
+}
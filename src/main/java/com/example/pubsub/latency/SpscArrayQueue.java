@@ -0,0 +1,45 @@
+package com.example.pubsub.latency;
+
+// Single producer, single consumer. Each side only writes its own index, so no CAS is needed.
+public class SpscArrayQueue<E> extends PaddedArrayQueue<E> {
+    // Producer-local copy of the consumer index; refreshed only when the queue looks full
+    private long consumerIndexCache;
+
+    public SpscArrayQueue(int capacity) {
+        this(capacity, new BusySpinWaitStrategy());
+    }
+
+    public SpscArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    public boolean offer(E element) {
+        checkNotNull(element);
+        final long p = producerIndex.get();
+        if (p - consumerIndexCache >= capacity) {
+            consumerIndexCache = consumerIndex.get();
+            if (p - consumerIndexCache >= capacity) {
+                return false; // Queue is full
+            }
+        }
+        buffer.lazySet((int) p & mask, element);
+        producerIndex.set(p + 1); // Ordered store publishes the slot
+        waitStrategy.signalAllWhenBlocking();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        final long c = consumerIndex.get();
+        if (c >= producerIndex.get()) {
+            return null; // Queue is empty
+        }
+        final int index = (int) c & mask;
+        E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        consumerIndex.set(c + 1);
+        waitStrategy.signalAllWhenBlocking();
+        return element;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.pubsub.latency;
+
+// How a consumer waits for a sequence to become available. Chosen per buffer: latency-critical
+// lanes spin, back-office lanes park or block so idle workers stop burning a core.
+public interface WaitStrategy {
+    // Waits until dependentSequence reaches sequence and returns the value it saw. The barrier, when
+    // present, is checked for alerts while waiting; queues pass null and rely on interruption.
+    long waitFor(long sequence, ReadableSequence dependentSequence, SequenceBarrier barrier)
+        throws InterruptedException;
+
+    // Called after a sequence moves; only strategies that actually sleep need to do anything
+    void signalAllWhenBlocking();
+}
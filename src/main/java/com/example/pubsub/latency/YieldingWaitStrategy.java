@@ -0,0 +1,41 @@
+package com.example.pubsub.latency;
+
+// Spins for a while, then yields the core to other runnable threads between checks
+public final class YieldingWaitStrategy implements WaitStrategy {
+    private static final int DEFAULT_SPIN_TRIES = 100;
+
+    private final int spinTries;
+
+    public YieldingWaitStrategy() {
+        this(DEFAULT_SPIN_TRIES);
+    }
+
+    public YieldingWaitStrategy(int spinTries) {
+        this.spinTries = spinTries;
+    }
+
+    @Override
+    public long waitFor(long sequence, ReadableSequence dependentSequence, SequenceBarrier barrier)
+            throws InterruptedException {
+        int counter = spinTries;
+        long available;
+        while ((available = dependentSequence.get()) < sequence) {
+            if (barrier != null) {
+                barrier.checkAlert();
+            } else if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (counter > 0) {
+                counter--;
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
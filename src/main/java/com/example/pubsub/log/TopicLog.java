@@ -0,0 +1,309 @@
+package com.example.pubsub.log;
+
+import com.example.pubsub.BinaryMessage;
+import com.example.pubsub.Message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Append-only log for one topic, split into fixed-size memory-mapped segments.
+// Record layout: [int length][int keyLength][UTF-8 key][payload], where length covers everything
+// after the first int and keyLength is NO_KEY for an unkeyed message. The length is written after
+// the rest of the record; since it is never below KEY_HEADER_SIZE, even for an empty payload, a
+// length of 0 marks the unwritten tail and END_OF_SEGMENT marks a segment the writer rolled away from.
+// Offsets are global byte positions: segment base offset + position inside the segment.
+public class TopicLog implements AutoCloseable {
+    public static final long EARLIEST = -2;
+    public static final long LATEST = -1;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final int HEADER_SIZE = 4;
+    static final int KEY_HEADER_SIZE = 4;
+    public static final int NO_KEY = -1;
+    static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SEGMENT_NAME_DIGITS = 20;
+
+    private final String topic;
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentNavigableMap<Long, MappedByteBuffer> segments;
+
+    // Writer-owned state, only ever touched by the single appending thread
+    private MappedByteBuffer active;
+    private long activeBase;
+    private int writePosition;
+
+    // Readers never go past this; the volatile write publishes the record bytes before it
+    private volatile long committed;
+    private volatile boolean closed;
+
+    private TopicLog(String topic, Path directory, int segmentSize) {
+        this.topic = topic;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segments = new ConcurrentSkipListMap<>();
+    }
+
+    public static TopicLog open(Path rootDirectory, String topic) {
+        return open(rootDirectory, topic, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static TopicLog open(Path rootDirectory, String topic, int segmentSize) {
+        if (segmentSize <= HEADER_SIZE + KEY_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        Path directory = rootDirectory.resolve(topic.replace('/', '_'));
+        TopicLog log = new TopicLog(topic, directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            log.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open topic log for " + topic, e);
+        }
+        return log;
+    }
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                long base = segmentBase(file.getFileName().toString());
+                if (base < 0) {
+                    System.err.printf("Ignoring %s in topic log %s: not a segment%n", file.getFileName(), topic);
+                    continue;
+                }
+                segments.put(base, map(file));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            roll(0);
+            return;
+        }
+
+        // Scan the newest segment for the first unwritten record header
+        Map.Entry<Long, MappedByteBuffer> last = segments.lastEntry();
+        active = last.getValue();
+        activeBase = last.getKey();
+        int position = 0;
+        while (position + HEADER_SIZE <= segmentSize) {
+            int length = active.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                roll(activeBase + segmentSize);
+                return;
+            }
+            if (length < KEY_HEADER_SIZE || position + HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+        writePosition = position;
+        committed = activeBase + position;
+    }
+
+    // Zero-padded base offset, e.g. 00000000000067108864.log; -1 for anything else in the directory
+    private static long segmentBase(String name) {
+        if (name.length() != SEGMENT_NAME_DIGITS + SEGMENT_SUFFIX.length()) {
+            return -1;
+        }
+        for (int i = 0; i < SEGMENT_NAME_DIGITS; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(name.substring(0, SEGMENT_NAME_DIGITS));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Single writer per topic: no locks, no write() calls, just stores into the mapped segment.
+    // A BinaryMessage is appended without allocating, key included.
+    public long append(Message message) {
+        if (closed) {
+            throw new IllegalStateException("Topic log for " + topic + " is closed");
+        }
+        String key = message.getKey();
+        int keyLength = key == null ? 0 : utf8Length(key);
+        if (message instanceof BinaryMessage) {
+            ByteBuffer payload = ((BinaryMessage) message).getPayload();
+            int length = KEY_HEADER_SIZE + keyLength + payload.remaining();
+            int position = reserve(length);
+            putKey(position + HEADER_SIZE, key, keyLength);
+            active.position(position + HEADER_SIZE + KEY_HEADER_SIZE + keyLength);
+            active.put(payload);
+            return commit(position, length);
+        }
+
+        byte[] payload = message.getContent().getBytes(StandardCharsets.UTF_8);
+        int length = KEY_HEADER_SIZE + keyLength + payload.length;
+        int position = reserve(length);
+        putKey(position + HEADER_SIZE, key, keyLength);
+        active.position(position + HEADER_SIZE + KEY_HEADER_SIZE + keyLength);
+        active.put(payload);
+        return commit(position, length);
+    }
+
+    private void putKey(int index, String key, int keyLength) {
+        if (key == null) {
+            active.putInt(index, NO_KEY);
+            return;
+        }
+        active.putInt(index, keyLength);
+        int position = index + KEY_HEADER_SIZE;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                active.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                active.put(position++, (byte) (0xC0 | c >> 6));
+                active.put(position++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < key.length()
+                    && Character.isLowSurrogate(key.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, key.charAt(++i));
+                active.put(position++, (byte) (0xF0 | codePoint >> 18));
+                active.put(position++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                active.put(position++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                active.put(position++, (byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: replaced like String.getBytes does
+                active.put(position++, (byte) '?');
+            } else {
+                active.put(position++, (byte) (0xE0 | c >> 12));
+                active.put(position++, (byte) (0x80 | c >> 6 & 0x3F));
+                active.put(position++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    // Encoded length matching putKey, so the record can be reserved before anything is written
+    private static int utf8Length(String key) {
+        int length = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < key.length()
+                    && Character.isLowSurrogate(key.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private int reserve(int length) {
+        if (HEADER_SIZE + length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit a segment");
+        }
+        if (writePosition + HEADER_SIZE + length > segmentSize) {
+            if (writePosition + HEADER_SIZE <= segmentSize) {
+                active.putInt(writePosition, END_OF_SEGMENT);
+            }
+            roll(activeBase + segmentSize);
+        }
+        return writePosition;
+    }
+
+    private long commit(int position, int length) {
+        active.putInt(position, length);
+        writePosition = position + HEADER_SIZE + length;
+        long offset = activeBase + position;
+        committed = activeBase + writePosition;
+        return offset;
+    }
+
+    private void roll(long base) {
+        try {
+            active = map(directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll topic log segment for " + topic, e);
+        }
+        activeBase = base;
+        writePosition = 0;
+        segments.put(base, active);
+        committed = base;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    public TopicLogReader reader(long startOffset) {
+        if (closed) {
+            throw new IllegalStateException("Topic log for " + topic + " is closed");
+        }
+        long offset = startOffset;
+        if (startOffset == EARLIEST) {
+            offset = getStartOffset();
+        } else if (startOffset == LATEST) {
+            offset = committed;
+        } else if (startOffset < getStartOffset() || startOffset > committed) {
+            throw new IllegalArgumentException("Offset " + startOffset + " is outside the log for " + topic);
+        }
+        return new TopicLogReader(this, offset);
+    }
+
+    // Reader side accessors; null once the log is closed
+    Map.Entry<Long, MappedByteBuffer> segmentFor(long offset) {
+        return segments.floorEntry(offset);
+    }
+
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public long getStartOffset() {
+        return segments.firstKey();
+    }
+
+    public long getEndOffset() {
+        return committed;
+    }
+
+    // Pushes dirty pages to disk; the writer itself never syncs
+    public void flush() {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+    }
+
+    // Flushes, then drops every mapping. Java has no supported way to unmap a buffer eagerly, and
+    // forcing it would crash readers still holding a view, so the pages go when those views are collected.
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        segments.clear();
+        active = null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.pubsub.log;
+
+import com.example.pubsub.BinaryMessage;
+import com.example.pubsub.Subscriber;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Independent cursor over a TopicLog. Each reader keeps its own view of the mapped segments,
+// so catch-up consumers replay at memory speed without touching the writer.
+public class TopicLogReader {
+    @FunctionalInterface
+    public interface RecordHandler {
+        // The buffer is only valid for the duration of the call. The UTF-8 key occupies keyLength bytes
+        // at keyIndex, or keyLength is TopicLog.NO_KEY; the payload occupies length bytes at index.
+        void onRecord(ByteBuffer buffer, int keyIndex, int keyLength, int index, int length, long offset);
+    }
+
+    private final TopicLog log;
+    private long position;
+    private ByteBuffer segment;
+    private long segmentBase;
+
+    TopicLogReader(TopicLog log, long position) {
+        this.log = log;
+        this.position = position;
+        this.segmentBase = -1;
+    }
+
+    // Allocation-free path: hands out the mapped bytes in place
+    public int poll(RecordHandler handler, int maxRecords) {
+        int segmentSize = log.getSegmentSize();
+        int count = 0;
+        while (count < maxRecords && position < log.getEndOffset()) {
+            if (segmentBase < 0 || position >= segmentBase + segmentSize) {
+                Map.Entry<Long, MappedByteBuffer> entry = log.segmentFor(position);
+                if (entry == null) {
+                    // Log closed underneath us
+                    break;
+                }
+                segmentBase = entry.getKey();
+                segment = entry.getValue().duplicate();
+            }
+
+            int index = (int) (position - segmentBase);
+            if (index + TopicLog.HEADER_SIZE > segmentSize
+                    || segment.getInt(index) == TopicLog.END_OF_SEGMENT) {
+                position = segmentBase + segmentSize;
+                continue;
+            }
+
+            int length = segment.getInt(index);
+            int keyIndex = index + TopicLog.HEADER_SIZE + TopicLog.KEY_HEADER_SIZE;
+            int keyLength = segment.getInt(index + TopicLog.HEADER_SIZE);
+            int payloadIndex = keyIndex + Math.max(keyLength, 0);
+            handler.onRecord(segment, keyIndex, keyLength, payloadIndex,
+                length - (payloadIndex - index - TopicLog.HEADER_SIZE), position);
+            position += TopicLog.HEADER_SIZE + length;
+            count++;
+        }
+        return count;
+    }
+
+    // Convenience path for existing subscribers: each record is wrapped as a read-only BinaryMessage
+    public int poll(Subscriber subscriber, int maxRecords) {
+        String topic = log.getTopic();
+        return poll((buffer, keyIndex, keyLength, index, length, offset) -> {
+            ByteBuffer view = buffer.duplicate();
+            view.limit(index + length).position(index);
+            BinaryMessage message = BinaryMessage.wrap(topic, view.asReadOnlyBuffer());
+            if (keyLength != TopicLog.NO_KEY) {
+                byte[] key = new byte[keyLength];
+                buffer.duplicate().position(keyIndex).get(key);
+                message.withKey(new String(key, StandardCharsets.UTF_8));
+            }
+            subscriber.onMessage(message);
+        }, maxRecords);
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getLag() {
+        return log.getEndOffset() - position;
+    }
+}
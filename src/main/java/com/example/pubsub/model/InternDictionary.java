@@ -0,0 +1,86 @@
+package com.example.pubsub.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Maps strings to dense int ids, assigned in first-seen order starting at 1. Interning happens once
+// at ingestion; everything downstream compares and indexes by id and only decodes at output edges.
+// Lookups are a plain array read. New ids are rare after warm-up, so assignment takes a lock.
+public final class InternDictionary {
+    // Id for null or empty strings, i.e. "no value"
+    public static final int NULL_ID = 0;
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String name;
+    private final ConcurrentMap<String, Integer> ids;
+    // Index is the id; replaced with a larger copy when full, so readers never see a torn array
+    private volatile String[] values;
+    private int nextId;
+
+    public InternDictionary(String name) {
+        this.name = name;
+        this.ids = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+        this.values = new String[INITIAL_CAPACITY];
+        this.nextId = NULL_ID + 1;
+    }
+
+    public int intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        return assign(value);
+    }
+
+    private synchronized int assign(String value) {
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int id = nextId++;
+        String[] current = values;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = value;
+        // Publish the value before the id becomes visible through the map
+        values = current;
+        ids.put(value, id);
+        return id;
+    }
+
+    // Id of an already interned value, or NOT_FOUND; never assigns
+    public int idOf(String value) {
+        if (value == null || value.isEmpty()) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    public String lookup(int id) {
+        if (id == NULL_ID) {
+            return null;
+        }
+        String[] current = values;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown " + name + " id: " + id);
+        }
+        return current[id];
+    }
+
+    // Number of assigned ids; arrays of per-value state can be sized to size() + 1
+    public synchronized int size() {
+        return nextId - 1;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -1,121 +1,179 @@
 package com.example.pubsub.model;
 
-import java.time.Instant;
+import com.example.pubsub.latency.Clocks;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class MarketTrade {
-    private final UUID tradeId;
-    private final String symbol;
-    private final double price;
-    private final int quantity;
-    private final String venue;
-    private final OrderType orderType;
-    private final String counterparty;
-    private final Instant receivedTime;
-    private final long sequenceNumber;
-    private final String trader;
-    private final String account;
+// Mutable so instances can be recycled through MarketTradePool. Whoever holds a pooled trade owns
+// it until it hands it on; the last stage of the pipeline calls release() and must not touch it after.
+public class MarketTrade implements TradeTrace {
+    // -Dpubsub.trade.pool.debug=true makes every access to a released trade throw
+    static final boolean DEBUG = Boolean.getBoolean("pubsub.trade.pool.debug");
+    // -Dpubsub.trade.sequence.mode=strict for globally increasing sequence numbers
+    // Shared with TradeRecord
+    static final TradeSequence SEQUENCE = TradeSequence.fromProperty("pubsub.trade.sequence.mode");
+    static final TradeIdGenerator ID_GENERATOR = TradeIdGenerator.forThisProcess();
+
+    private final MarketTradePool pool;
+    private final AtomicBoolean released;
+    // 128-bit id from TradeIdGenerator, kept as two longs so a trade carries no id object
+    private long tradeIdHi;
+    private long tradeIdLo;
+    // String fields are held as TradeDictionaries ids; the String getters decode for output only
+    private int symbolId;
+    private double price;
+    private int quantity;
+    private int venueId;
+    private OrderType orderType;
+    private int counterpartyId;
+    // Epoch nanos from Clocks
+    private long receivedNanos;
+    private long sequenceNumber;
+    private int traderId;
+    private int accountId;
     private volatile TradeStatus status;
     private volatile String rejectionReason;
+    // Latency trace in System.nanoTime(): when the trade entered the pipeline, then when each
+    // stage (by PipelineStage ordinal) picked it up and finished with it. The gap between one
+    // stage's end and the next one's start is time spent queued in the ring.
+    private long ingressNanos;
+    private final long[] hopStartNanos = new long[PipelineStage.COUNT];
+    private final long[] hopEndNanos = new long[PipelineStage.COUNT];
     
-    // Object pooling for reduced GC
-    private static final ThreadLocal<MarketTrade> TRADE_POOL = ThreadLocal.withInitial(() -> {
-        MarketTrade[] trades = new MarketTrade[1024];
-        for (int i = 0; i < trades.length; i++) {
-            trades[i] = new MarketTrade();
-        }
-        return trades[0];
-    });
-    
-    // Private constructor for object pooling
-    private MarketTrade() {
-        this.tradeId = UUID.randomUUID();
-        this.symbol = "";
-        this.price = 0;
-        this.quantity = 0;
-        this.venue = "";
+    // Pool-owned instances start out released; acquire() hands them out
+    MarketTrade(MarketTradePool pool) {
+        this.pool = pool;
+        this.released = new AtomicBoolean(pool != null);
         this.orderType = OrderType.MARKET;
-        this.counterparty = "";
-        this.receivedTime = Instant.now();
-        this.sequenceNumber = 0;
-        this.trader = "";
-        this.account = "";
         this.status = TradeStatus.RECEIVED;
     }
     
-    // Factory method to get a trade from the pool
+    // Unpooled trade for callers outside the pipeline; release() is a no-op beyond the state check
     public static MarketTrade create(String symbol, double price, int quantity, 
                                    String venue, OrderType orderType, String counterparty,
                                    String trader, String account) {
-        MarketTrade trade = TRADE_POOL.get();
-        trade.reset(symbol, price, quantity, venue, orderType, counterparty, trader, account);
+        MarketTrade trade = new MarketTrade(null);
+        trade.reset(TradeDictionaries.SYMBOLS.intern(symbol), price, quantity,
+            TradeDictionaries.VENUES.intern(venue), orderType,
+            TradeDictionaries.COUNTERPARTIES.intern(counterparty),
+            TradeDictionaries.TRADERS.intern(trader), TradeDictionaries.ACCOUNTS.intern(account));
         return trade;
     }
     
-    private void reset(String symbol, double price, int quantity, 
-                      String venue, OrderType orderType, String counterparty,
-                      String trader, String account) {
+    void reset(int symbolId, double price, int quantity, 
+              int venueId, OrderType orderType, int counterpartyId,
+              int traderId, int accountId) {
         // Reset mutable state
         this.status = TradeStatus.RECEIVED;
         this.rejectionReason = null;
         
         // Set new values
-        this.symbol = symbol;
+        this.tradeIdHi = ID_GENERATOR.nextHi();
+        this.tradeIdLo = ID_GENERATOR.nextLo();
+        this.symbolId = symbolId;
         this.price = price;
         this.quantity = quantity;
-        this.venue = venue;
+        this.venueId = venueId;
         this.orderType = orderType;
-        this.counterparty = counterparty;
-        this.trader = trader;
-        this.account = account;
-        this.receivedTime = Instant.now();
-        this.sequenceNumber = TradeSequence.getNext();
+        this.counterpartyId = counterpartyId;
+        this.traderId = traderId;
+        this.accountId = accountId;
+        this.receivedNanos = Clocks.nanos();
+        this.sequenceNumber = SEQUENCE.next();
+        this.ingressNanos = System.nanoTime();
+        Arrays.fill(hopStartNanos, 0);
+        Arrays.fill(hopEndNanos, 0);
+    }
+    
+    // Called by the pool when the trade is handed out
+    void acquired() {
+        released.set(false);
+    }
+    
+    // Ends the caller's ownership. A second release of the same acquisition always fails, since
+    // returning one instance to the pool twice would hand it to two owners at once.
+    public void release() {
+        if (!released.compareAndSet(false, true)) {
+            throw new IllegalStateException("MarketTrade released twice: " + TradeIdGenerator.format(tradeIdHi, tradeIdLo));
+        }
+        if (DEBUG) {
+            // Poison the fields so a stale reader that slips past checkLive() still sees garbage
+            symbolId = InternDictionary.NULL_ID;
+            price = Double.NaN;
+            quantity = -1;
+        }
+        if (pool != null) {
+            pool.recycle(this);
+        }
+    }
+    
+    public boolean isReleased() {
+        return released.get();
+    }
+    
+    private void checkLive() {
+        if (DEBUG && released.get()) {
+            throw new IllegalStateException("MarketTrade used after release: " + TradeIdGenerator.format(tradeIdHi, tradeIdLo));
+        }
     }
     
     // Getters
-    public UUID getTradeId() { return tradeId; }
-    public String getSymbol() { return symbol; }
-    public double getPrice() { return price; }
-    public int getQuantity() { return quantity; }
-    public String getVenue() { return venue; }
-    public OrderType getOrderType() { return orderType; }
-    public String getCounterparty() { return counterparty; }
-    public Instant getReceivedTime() { return receivedTime; }
-    public long getSequenceNumber() { return sequenceNumber; }
-    public String getTrader() { return trader; }
-    public String getAccount() { return account; }
-    public TradeStatus getStatus() { return status; }
-    public String getRejectionReason() { return rejectionReason; }
+    public long getTradeIdHi() { checkLive(); return tradeIdHi; }
+    public long getTradeIdLo() { checkLive(); return tradeIdLo; }
+    // Allocates; for output edges that want a UUID object
+    public UUID getTradeId() { return new UUID(getTradeIdHi(), getTradeIdLo()); }
+    public int getSymbolId() { checkLive(); return symbolId; }
+    public double getPrice() { checkLive(); return price; }
+    public int getQuantity() { checkLive(); return quantity; }
+    public int getVenueId() { checkLive(); return venueId; }
+    public OrderType getOrderType() { checkLive(); return orderType; }
+    public int getCounterpartyId() { checkLive(); return counterpartyId; }
+    public long getReceivedNanos() { checkLive(); return receivedNanos; }
+    public long getSequenceNumber() { checkLive(); return sequenceNumber; }
+    public int getTraderId() { checkLive(); return traderId; }
+    public int getAccountId() { checkLive(); return accountId; }
+    @Override public long getIngressNanos() { checkLive(); return ingressNanos; }
+    // Zero for a stage the trade has not reached
+    @Override public long getHopStartNanos(PipelineStage stage) { checkLive(); return hopStartNanos[stage.ordinal()]; }
+    @Override public long getHopEndNanos(PipelineStage stage) { checkLive(); return hopEndNanos[stage.ordinal()]; }
+    
+    // Decoded views for output edges (logging, FIX, audit); hot paths use the ids
+    public String getSymbol() { return TradeDictionaries.SYMBOLS.lookup(getSymbolId()); }
+    public String getVenue() { return TradeDictionaries.VENUES.lookup(getVenueId()); }
+    public String getCounterparty() { return TradeDictionaries.COUNTERPARTIES.lookup(getCounterpartyId()); }
+    public String getTrader() { return TradeDictionaries.TRADERS.lookup(getTraderId()); }
+    public String getAccount() { return TradeDictionaries.ACCOUNTS.lookup(getAccountId()); }
+    @Override public TradeStatus getStatus() { checkLive(); return status; }
+    public String getRejectionReason() { checkLive(); return rejectionReason; }
     
     // Status management
     public void setStatus(TradeStatus status) {
+        checkLive();
         this.status = status;
     }
     
     public void reject(String reason) {
+        checkLive();
         this.status = TradeStatus.REJECTED;
         this.rejectionReason = reason;
     }
     
+    // Latency trace; each stage stamps only its own slot, and the ring's sequence barriers publish
+    // the stamps to the stages after it
+    public void markHopStart(PipelineStage stage, long nanos) {
+        checkLive();
+        hopStartNanos[stage.ordinal()] = nanos;
+    }
+    
+    public void markHopEnd(PipelineStage stage, long nanos) {
+        checkLive();
+        hopEndNanos[stage.ordinal()] = nanos;
+    }
+    
     @Override
     public String toString() {
         return String.format("MarketTrade{id=%s, symbol='%s', price=%.2f, quantity=%d, status=%s}",
-            tradeId, symbol, price, quantity, status);
-    }
-}
-
-enum OrderType {
-    MARKET, LIMIT, STOP, STOP_LIMIT
-}
-
-enum TradeStatus {
-    RECEIVED, VALIDATED, PRICED, RISK_CHECKED, EXECUTED, REJECTED, CANCELLED
-}
-
-class TradeSequence {
-    private static long sequence = 0;
-    
-    public static synchronized long getNext() {
-        return ++sequence;
+            TradeIdGenerator.format(tradeIdHi, tradeIdLo), TradeDictionaries.SYMBOLS.lookup(symbolId), price, quantity, status);
     }
 }
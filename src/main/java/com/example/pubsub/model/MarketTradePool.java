@@ -0,0 +1,57 @@
+package com.example.pubsub.model;
+
+import com.example.pubsub.latency.MpmcArrayQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded free list of MarketTrade instances, all created up front. Any thread may acquire and
+// any thread may release, so the free list is an MPMC queue; neither side allocates or locks.
+public class MarketTradePool {
+    private final MpmcArrayQueue<MarketTrade> free;
+    private final LongAdder misses;
+
+    public MarketTradePool(int tradeCount) {
+        if (tradeCount <= 0) {
+            throw new IllegalArgumentException("Trade count must be positive");
+        }
+        this.free = new MpmcArrayQueue<>(tradeCount);
+        this.misses = new LongAdder();
+        for (int i = 0; i < tradeCount; i++) {
+            free.offer(new MarketTrade(this));
+        }
+    }
+
+    // The caller owns the returned trade until it calls release() or hands it on
+    // Takes dictionary ids: callers intern at ingestion (see TradeDictionaries)
+    public MarketTrade acquire(int symbolId, double price, int quantity,
+                               int venueId, OrderType orderType, int counterpartyId,
+                               int traderId, int accountId) {
+        MarketTrade trade = free.poll();
+        if (trade == null) {
+            // Pool exhausted: fall back to an unpooled trade that is dropped rather than recycled
+            misses.increment();
+            trade = new MarketTrade(null);
+        } else {
+            trade.acquired();
+        }
+        trade.reset(symbolId, price, quantity, venueId, orderType, counterpartyId, traderId, accountId);
+        return trade;
+    }
+
+    void recycle(MarketTrade trade) {
+        // FIFO reuse keeps a released trade out of circulation as long as possible, which gives
+        // debug mode the widest window to catch a stale reference
+        free.offer(trade);
+    }
+
+    public int getAvailable() {
+        return free.size();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int capacity() {
+        return free.capacity();
+    }
+}
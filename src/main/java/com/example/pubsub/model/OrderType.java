@@ -0,0 +1,5 @@
+package com.example.pubsub.model;
+
+public enum OrderType {
+    MARKET, LIMIT, STOP, STOP_LIMIT
+}
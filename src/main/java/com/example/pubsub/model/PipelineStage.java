@@ -0,0 +1,18 @@
+package com.example.pubsub.model;
+
+import java.util.Locale;
+
+// Stages of the ring pipeline in the order a trade passes through them; the ordinal indexes the
+// hop stamps a TradeTrace carries
+public enum PipelineStage {
+    VALIDATION, PRICING, RISK, EXECUTION;
+
+    public static final int COUNT = values().length;
+
+    private final String metricName = name().toLowerCase(Locale.ROOT);
+
+    // The stage's name in LatencyMonitor and as a metrics pool label
+    public String getMetricName() {
+        return metricName;
+    }
+}
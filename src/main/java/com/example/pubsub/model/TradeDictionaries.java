@@ -0,0 +1,14 @@
+package com.example.pubsub.model;
+
+// Process-wide dictionaries for the string fields of the trade model. Ids are only meaningful
+// within one process; anything persisted or sent out must be decoded first.
+public final class TradeDictionaries {
+    public static final InternDictionary SYMBOLS = new InternDictionary("symbol");
+    public static final InternDictionary VENUES = new InternDictionary("venue");
+    public static final InternDictionary COUNTERPARTIES = new InternDictionary("counterparty");
+    public static final InternDictionary TRADERS = new InternDictionary("trader");
+    public static final InternDictionary ACCOUNTS = new InternDictionary("account");
+
+    private TradeDictionaries() {
+    }
+}
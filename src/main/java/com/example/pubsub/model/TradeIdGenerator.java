@@ -0,0 +1,107 @@
+package com.example.pubsub.model;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 128-bit time-ordered trade ids with no SecureRandom and no allocation:
+//   hi = epoch millis (42 bits, good until 2109) | node id (22 bits)
+//   lo = thread slot (24 bits) | per-thread counter (40 bits)
+// The node id defaults to the process id, so instances on one host differ; a restarted process
+// differs from its predecessor by timestamp. Ids sort by creation time to the millisecond via hi.
+// Rendered in UUID text form (8-4-4-4-12 hex) but not RFC 4122 random UUIDs.
+public final class TradeIdGenerator {
+    public static final int ENCODED_LENGTH = 36;
+
+    private static final int NODE_BITS = 22;
+    private static final int COUNTER_BITS = 40;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long SLOT_MASK = (1L << (Long.SIZE - COUNTER_BITS)) - 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long node;
+    private final AtomicInteger slots;
+    private final ThreadLocal<long[]> threadState;
+
+    public TradeIdGenerator(long nodeId) {
+        this.node = nodeId & NODE_MASK;
+        this.slots = new AtomicInteger();
+        // [0] = thread slot shifted into place, [1] = counter; a long[] avoids boxing on every id
+        this.threadState = ThreadLocal.withInitial(
+            () -> new long[] {(slots.getAndIncrement() & SLOT_MASK) << COUNTER_BITS, 0});
+    }
+
+    // Node id from -Dpubsub.node.id, falling back to the process id
+    public static TradeIdGenerator forThisProcess() {
+        String configured = System.getProperty("pubsub.node.id");
+        long nodeId = configured != null ? Long.parseLong(configured.trim()) : ProcessHandle.current().pid();
+        return new TradeIdGenerator(nodeId);
+    }
+
+    // An id is the pair (nextHi(), nextLo()) taken together. lo alone is already unique within
+    // this process; hi adds the time and node that make it unique across processes and restarts.
+    public long nextHi() {
+        return (System.currentTimeMillis() << NODE_BITS) | node;
+    }
+
+    public long nextLo() {
+        long[] state = threadState.get();
+        return state[0] | (state[1]++ & COUNTER_MASK);
+    }
+
+    public static long timestampMillis(long hi) {
+        return hi >>> NODE_BITS;
+    }
+
+    public static long nodeId(long hi) {
+        return hi & NODE_MASK;
+    }
+
+    // Writes 36 chars into dst at offset; nothing is allocated
+    public static void encode(long hi, long lo, char[] dst, int offset) {
+        int p = offset;
+        p = hex(hi >>> 32, 8, dst, p);
+        dst[p++] = '-';
+        p = hex(hi >>> 16, 4, dst, p);
+        dst[p++] = '-';
+        p = hex(hi, 4, dst, p);
+        dst[p++] = '-';
+        p = hex(lo >>> 48, 4, dst, p);
+        dst[p++] = '-';
+        hex(lo, 12, dst, p);
+    }
+
+    // Writes 36 ASCII bytes at the buffer's position and advances it
+    public static void encode(long hi, long lo, ByteBuffer dst) {
+        appendHex(hi >>> 32, 8, dst);
+        dst.put((byte) '-');
+        appendHex(hi >>> 16, 4, dst);
+        dst.put((byte) '-');
+        appendHex(hi, 4, dst);
+        dst.put((byte) '-');
+        appendHex(lo >>> 48, 4, dst);
+        dst.put((byte) '-');
+        appendHex(lo, 12, dst);
+    }
+
+    // For output edges only
+    public static String format(long hi, long lo) {
+        char[] chars = new char[ENCODED_LENGTH];
+        encode(hi, lo, chars, 0);
+        return new String(chars);
+    }
+
+    private static int hex(long value, int digits, char[] dst, int offset) {
+        for (int i = digits - 1; i >= 0; i--) {
+            dst[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return offset + digits;
+    }
+
+    private static void appendHex(long value, int digits, ByteBuffer dst) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            dst.put((byte) HEX[(int) ((value >>> shift) & 0xF)]);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.pubsub.model;
+
+import java.nio.ByteBuffer;
+
+// Flyweight over one fixed-layout trade slot in an off-heap buffer. A record holds no trade data of
+// its own: wrap() points it at a slot and every accessor reads or writes that slot in place. Each
+// thread needs its own instance; the slot contents are ordered by the ring's sequences, not by this class.
+//
+// Layout, two 64-byte cache lines per trade: the trade itself, then its state and latency trace.
+//   0 tradeIdHi (long)        8 tradeIdLo (long)         16 sequenceNumber (long)    24 price (long, fixed point)
+//  32 receivedNanos (long)   40 quantity (int)          44 symbolId   48 venueId   52 counterpartyId
+//  56 traderId (int)         60 accountId (int)
+//  64 updatedNanos (long)    72 ingressNanos (long)     80 orderType (byte)   81 status (byte)
+//  82 rejectCode (short)     84 reserved (int)          88 hop starts (4 x int)    104 hop ends (4 x int)
+// 120 reserved (long)
+// Hop stamps are System.nanoTime() offsets from ingressNanos, saturating at Integer.MAX_VALUE (~2.1s).
+public final class TradeRecord implements TradeTrace {
+    public static final int SLOT_SIZE = 128;
+    // Prices are stored as price * PRICE_SCALE, i.e. 8 decimal places
+    public static final long PRICE_SCALE = 100_000_000L;
+
+    public static final short REJECT_NONE = 0;
+    public static final short REJECT_VALIDATION = 1;
+    public static final short REJECT_CIRCUIT_OPEN = 2;
+    public static final short REJECT_NOTIONAL = 3;
+    public static final short REJECT_CAPACITY = 4;
+    public static final short REJECT_ERROR = 5;
+
+    private static final int TRADE_ID_HI_OFFSET = 0;
+    private static final int TRADE_ID_LO_OFFSET = 8;
+    private static final int SEQUENCE_NUMBER_OFFSET = 16;
+    private static final int PRICE_OFFSET = 24;
+    private static final int RECEIVED_NANOS_OFFSET = 32;
+    private static final int QUANTITY_OFFSET = 40;
+    private static final int SYMBOL_ID_OFFSET = 44;
+    private static final int VENUE_ID_OFFSET = 48;
+    private static final int COUNTERPARTY_ID_OFFSET = 52;
+    private static final int TRADER_ID_OFFSET = 56;
+    private static final int ACCOUNT_ID_OFFSET = 60;
+    private static final int UPDATED_NANOS_OFFSET = 64;
+    private static final int INGRESS_NANOS_OFFSET = 72;
+    private static final int ORDER_TYPE_OFFSET = 80;
+    private static final int STATUS_OFFSET = 81;
+    private static final int REJECT_CODE_OFFSET = 82;
+    private static final int HOP_START_OFFSET = 88;
+    private static final int HOP_END_OFFSET = HOP_START_OFFSET + PipelineStage.COUNT * Integer.BYTES;
+
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TradeStatus[] STATUSES = TradeStatus.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public TradeRecord wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    // Writes every field so a recycled slot never leaks values from the trade it held before. The id
+    // and sequence number come from the same generators as MarketTrade's, so both kinds of trade
+    // share one id space.
+    public TradeRecord init(int symbolId, long priceFixed, int quantity, int venueId,
+                            OrderType orderType, int counterpartyId, int traderId, int accountId,
+                            long receivedNanos) {
+        buffer.putLong(offset + TRADE_ID_HI_OFFSET, MarketTrade.ID_GENERATOR.nextHi());
+        buffer.putLong(offset + TRADE_ID_LO_OFFSET, MarketTrade.ID_GENERATOR.nextLo());
+        buffer.putLong(offset + SEQUENCE_NUMBER_OFFSET, MarketTrade.SEQUENCE.next());
+        buffer.putLong(offset + PRICE_OFFSET, priceFixed);
+        buffer.putLong(offset + RECEIVED_NANOS_OFFSET, receivedNanos);
+        buffer.putLong(offset + UPDATED_NANOS_OFFSET, receivedNanos);
+        buffer.putInt(offset + QUANTITY_OFFSET, quantity);
+        buffer.putInt(offset + SYMBOL_ID_OFFSET, symbolId);
+        buffer.putInt(offset + VENUE_ID_OFFSET, venueId);
+        buffer.putInt(offset + COUNTERPARTY_ID_OFFSET, counterpartyId);
+        buffer.putInt(offset + TRADER_ID_OFFSET, traderId);
+        buffer.putInt(offset + ACCOUNT_ID_OFFSET, accountId);
+        buffer.put(offset + ORDER_TYPE_OFFSET, (byte) orderType.ordinal());
+        buffer.put(offset + STATUS_OFFSET, (byte) TradeStatus.RECEIVED.ordinal());
+        buffer.putShort(offset + REJECT_CODE_OFFSET, REJECT_NONE);
+        buffer.putLong(offset + INGRESS_NANOS_OFFSET, System.nanoTime());
+        for (int i = 0; i < PipelineStage.COUNT; i++) {
+            buffer.putInt(offset + HOP_START_OFFSET + i * Integer.BYTES, 0);
+            buffer.putInt(offset + HOP_END_OFFSET + i * Integer.BYTES, 0);
+        }
+        return this;
+    }
+
+    public static long toFixedPrice(double price) {
+        return Math.round(price * PRICE_SCALE);
+    }
+
+    public static double fromFixedPrice(long priceFixed) {
+        return (double) priceFixed / PRICE_SCALE;
+    }
+
+    public long getTradeIdHi() {
+        return buffer.getLong(offset + TRADE_ID_HI_OFFSET);
+    }
+
+    public long getTradeIdLo() {
+        return buffer.getLong(offset + TRADE_ID_LO_OFFSET);
+    }
+
+    public long getSequenceNumber() {
+        return buffer.getLong(offset + SEQUENCE_NUMBER_OFFSET);
+    }
+
+    public long getPriceFixed() {
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    public double getPrice() {
+        return fromFixedPrice(getPriceFixed());
+    }
+
+    public void setPriceFixed(long priceFixed) {
+        buffer.putLong(offset + PRICE_OFFSET, priceFixed);
+    }
+
+    public long getReceivedNanos() {
+        return buffer.getLong(offset + RECEIVED_NANOS_OFFSET);
+    }
+
+    // Time of the last status change
+    public long getUpdatedNanos() {
+        return buffer.getLong(offset + UPDATED_NANOS_OFFSET);
+    }
+
+    public int getQuantity() {
+        return buffer.getInt(offset + QUANTITY_OFFSET);
+    }
+
+    public int getSymbolId() {
+        return buffer.getInt(offset + SYMBOL_ID_OFFSET);
+    }
+
+    public int getVenueId() {
+        return buffer.getInt(offset + VENUE_ID_OFFSET);
+    }
+
+    public int getCounterpartyId() {
+        return buffer.getInt(offset + COUNTERPARTY_ID_OFFSET);
+    }
+
+    public int getTraderId() {
+        return buffer.getInt(offset + TRADER_ID_OFFSET);
+    }
+
+    public int getAccountId() {
+        return buffer.getInt(offset + ACCOUNT_ID_OFFSET);
+    }
+
+    public OrderType getOrderType() {
+        return ORDER_TYPES[buffer.get(offset + ORDER_TYPE_OFFSET)];
+    }
+
+    public TradeStatus getStatus() {
+        return STATUSES[buffer.get(offset + STATUS_OFFSET)];
+    }
+
+    public void setStatus(TradeStatus status, long nanos) {
+        buffer.put(offset + STATUS_OFFSET, (byte) status.ordinal());
+        buffer.putLong(offset + UPDATED_NANOS_OFFSET, nanos);
+    }
+
+    @Override
+    public long getIngressNanos() {
+        return buffer.getLong(offset + INGRESS_NANOS_OFFSET);
+    }
+
+    @Override
+    public long getHopStartNanos(PipelineStage stage) {
+        return getIngressNanos() + buffer.getInt(offset + HOP_START_OFFSET + stage.ordinal() * Integer.BYTES);
+    }
+
+    @Override
+    public long getHopEndNanos(PipelineStage stage) {
+        return getIngressNanos() + buffer.getInt(offset + HOP_END_OFFSET + stage.ordinal() * Integer.BYTES);
+    }
+
+    public void markHopStart(PipelineStage stage, long nanos) {
+        buffer.putInt(offset + HOP_START_OFFSET + stage.ordinal() * Integer.BYTES, hopOffset(nanos));
+    }
+
+    public void markHopEnd(PipelineStage stage, long nanos) {
+        buffer.putInt(offset + HOP_END_OFFSET + stage.ordinal() * Integer.BYTES, hopOffset(nanos));
+    }
+
+    private int hopOffset(long nanos) {
+        return (int) Math.max(0, Math.min(nanos - getIngressNanos(), Integer.MAX_VALUE));
+    }
+
+    public short getRejectCode() {
+        return buffer.getShort(offset + REJECT_CODE_OFFSET);
+    }
+
+    public void reject(short rejectCode, long nanos) {
+        buffer.putShort(offset + REJECT_CODE_OFFSET, rejectCode);
+        setStatus(TradeStatus.REJECTED, nanos);
+    }
+
+    // Fixed-point multiply kept in long arithmetic. Past ~9.2e10 notional the product no longer fits,
+    // so it saturates at Long.MAX_VALUE (MIN_VALUE when negative) instead of wrapping into range.
+    public long getNotionalFixed() {
+        long price = getPriceFixed();
+        long quantity = getQuantity();
+        long low = price * quantity;
+        if (Math.multiplyHigh(price, quantity) != (low >> 63)) {
+            return (price ^ quantity) < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return low;
+    }
+
+    @Override
+    public String toString() {
+        if (buffer == null) {
+            return "TradeRecord{unwrapped}";
+        }
+        return String.format("TradeRecord{id=%s, seq=%d, symbolId=%d, price=%.8f, quantity=%d, status=%s}",
+            TradeIdGenerator.format(getTradeIdHi(), getTradeIdLo()), getSequenceNumber(), getSymbolId(), getPrice(),
+            getQuantity(), getStatus());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.pubsub.model;
+
+import com.example.pubsub.latency.Sequence;
+
+// Unique, positive sequence numbers without a shared monitor. In BLOCK mode every thread reserves
+// a block of ids from the shared cursor with a single atomic add and hands them out locally, so the
+// cursor is touched once per block instead of once per trade. Ids are unique and increasing per
+// thread, but interleave across threads, and ids left in a block when its thread dies are never used.
+// STRICT mode takes every id straight from the cursor: one atomic add per id, but ids are globally
+// increasing in the order they were taken, which is what the audit trail needs.
+public final class TradeSequence {
+    public enum Mode { BLOCK, STRICT }
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final Mode mode;
+    private final int blockSize;
+    // Last id handed out (STRICT) or reserved (BLOCK); padded so it does not share a line with neighbours
+    private final Sequence cursor;
+    private final ThreadLocal<Block> blocks;
+
+    public TradeSequence() {
+        this(Mode.BLOCK, DEFAULT_BLOCK_SIZE);
+    }
+
+    public TradeSequence(Mode mode, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.mode = mode;
+        this.blockSize = mode == Mode.STRICT ? 1 : blockSize;
+        this.cursor = new Sequence(0);
+        this.blocks = ThreadLocal.withInitial(Block::new);
+    }
+
+    // Mode from a system property, e.g. -Dpubsub.trade.sequence.mode=strict
+    public static TradeSequence fromProperty(String property) {
+        String value = System.getProperty(property, Mode.BLOCK.name());
+        return new TradeSequence(Mode.valueOf(value.trim().toUpperCase()), DEFAULT_BLOCK_SIZE);
+    }
+
+    public long next() {
+        if (mode == Mode.STRICT) {
+            return cursor.addAndGet(1);
+        }
+        Block block = blocks.get();
+        if (block.next > block.limit) {
+            block.limit = cursor.addAndGet(blockSize);
+            block.next = block.limit - blockSize + 1;
+        }
+        return block.next++;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Highest id reserved so far; every id handed out is at or below it
+    public long getHighWaterMark() {
+        return cursor.get();
+    }
+
+    private static final class Block {
+        long next = 1;
+        long limit = 0; // Empty until the first reservation
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.pubsub.model;
+
+public enum TradeStatus {
+    RECEIVED, VALIDATED, PRICED, RISK_CHECKED, EXECUTED, REJECTED, CANCELLED
+}
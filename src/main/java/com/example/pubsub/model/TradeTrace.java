@@ -0,0 +1,13 @@
+package com.example.pubsub.model;
+
+// Latency trace a trade carries through the ring pipeline, in System.nanoTime(): when it entered,
+// then when each stage picked it up and finished with it
+public interface TradeTrace {
+    long getIngressNanos();
+
+    long getHopStartNanos(PipelineStage stage);
+
+    long getHopEndNanos(PipelineStage stage);
+
+    TradeStatus getStatus();
+}
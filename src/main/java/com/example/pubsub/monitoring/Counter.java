@@ -0,0 +1,61 @@
+package com.example.pubsub.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Handle to a registered counter. Striped, so concurrent increments from many threads don't
+// contend on one cache line; resolve it once and keep it in a field. reset() only moves the point
+// sum() counts from; total() keeps counting since registration, as exporters need.
+public final class Counter {
+    private final int index;
+    private final String name;
+    private final String pool;
+    private final LongAdder count;
+    private volatile long resetAt;
+
+    Counter(int index, String name, String pool) {
+        this.index = index;
+        this.name = name;
+        this.pool = pool;
+        this.count = new LongAdder();
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    // Since the last reset()
+    public long sum() {
+        return count.sum() - resetAt;
+    }
+
+    // Since registration, regardless of reset()
+    public long total() {
+        return count.sum();
+    }
+
+    void reset() {
+        resetAt = count.sum();
+    }
+
+    // Position in MetricsRegistry.getCounters()
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Null for process-wide metrics
+    public String getPool() {
+        return pool;
+    }
+
+    public String getKey() {
+        return MetricsRegistry.key(name, pool);
+    }
+}
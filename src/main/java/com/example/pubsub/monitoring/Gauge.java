@@ -0,0 +1,34 @@
+package com.example.pubsub.monitoring;
+
+import java.util.function.DoubleSupplier;
+
+// Handle to a registered gauge: a value sampled only when metrics are read, such as a queue depth.
+// The supplier runs on the reader's thread and must be safe to call from any thread.
+public final class Gauge {
+    private final String name;
+    private final String pool;
+    private final DoubleSupplier supplier;
+
+    Gauge(String name, String pool, DoubleSupplier supplier) {
+        this.name = name;
+        this.pool = pool;
+        this.supplier = supplier;
+    }
+
+    public double value() {
+        return supplier.getAsDouble();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Null for process-wide metrics
+    public String getPool() {
+        return pool;
+    }
+
+    public String getKey() {
+        return MetricsRegistry.key(name, pool);
+    }
+}
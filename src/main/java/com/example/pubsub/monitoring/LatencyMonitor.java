@@ -1,48 +1,177 @@
 package com.example.pubsub.monitoring;
 
 import org.HdrHistogram.Histogram;
-import java.time.Instant;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import org.HdrHistogram.HistogramLogWriter;
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+// Facade over the global MetricsRegistry with the pipeline's standard stages and counters.
+// Timers record into HdrHistogram Recorders, wait-free from any number of threads. A daemon thread
+// swaps out every timer's interval histogram every interval (-Dpubsub.latency.interval.millis,
+// default 1000), adds it to the timer's total and, if a log is open, appends it tagged with the
+// metric key (-Dpubsub.latency.log=<file> opens one at startup). Readers only see the totals,
+// under a lock the recording threads never take. Hot paths should hold the handles from stage()
+// and counter(); the String methods resolve on every call.
 public class LatencyMonitor {
-    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
-    private static final long HIGHEST_TRACKABLE_VALUE = 30_000_000_000L; // 30 seconds in nanos
-    
+    private static final long INTERVAL_MILLIS = Long.getLong("pubsub.latency.interval.millis", 1000);
+
+    private static final MetricsRegistry registry = MetricsRegistry.global();
+    // Serializes interval swaps and reads of the totals; never held while recording
+    private static final Object readLock = new Object();
+    private static HistogramLogWriter logWriter;
+
     static {
-        // Initialize histograms for different processing stages
-        histograms.put("validation", new Histogram(HIGHEST_TRACKABLE_VALUE, 2));
-        histograms.put("pricing", new Histogram(HIGHEST_TRACKABLE_VALUE, 2));
-        histograms.put("risk", new Histogram(HIGHEST_TRACKABLE_VALUE, 2));
-        histograms.put("execution", new Histogram(HIGHEST_TRACKABLE_VALUE, 2));
-        histograms.put("total", new Histogram(HIGHEST_TRACKABLE_VALUE, 2));
-        
-        // Initialize counters
-        counters.put("received", new AtomicLong(0));
-        counters.put("processed", new AtomicLong(0));
-        counters.put("rejected", new AtomicLong(0));
-        counters.put("errors", new AtomicLong(0));
-    }
-    
-    public static void recordLatency(String stage, long startNanos) {
-        long latency = System.nanoTime() - startNanos;
-        Histogram histogram = histograms.get(stage);
-        if (histogram != null) {
-            histogram.recordValue(latency);
+        // Register the processing stages and counters every pipeline reports
+        for (String stage : new String[] {"validation", "pricing", "risk", "execution", "total"}) {
+            registry.registerTimer(stage);
+        }
+        for (String counter : new String[] {"received", "processed", "executed", "rejected", "errors"}) {
+            registry.registerCounter(counter);
         }
+
+        String log = System.getProperty("pubsub.latency.log");
+        if (log != null) {
+            startLog(Paths.get(log));
+        }
+        Thread merger = new Thread(LatencyMonitor::mergeLoop, "latency-monitor");
+        merger.setDaemon(true);
+        merger.start();
+        // Flushes the last interval into an open log
+        Runtime.getRuntime().addShutdownHook(new Thread(LatencyMonitor::stopLog, "latency-monitor-shutdown"));
+    }
+
+    public static MetricsRegistry registry() {
+        return registry;
+    }
+
+    // Throws for a stage that was never registered
+    public static LatencyTimer stage(String stage) {
+        return registry.timer(stage);
+    }
+
+    public static Counter counter(String counter) {
+        return registry.counter(counter);
+    }
+
+    public static void recordLatency(String stage, long startNanos) {
+        registry.timer(stage).recordSince(startNanos);
+    }
+
+    public static void recordValue(String stage, long nanos) {
+        registry.timer(stage).record(nanos);
     }
-    
+
     public static void incrementCounter(String counter) {
-        AtomicLong count = counters.get(counter);
-        if (count != null) {
-            count.incrementAndGet();
+        registry.counter(counter).increment();
+    }
+
+    private static void mergeLoop() {
+        while (true) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+                merge();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Latency merge failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Moves everything recorded since the last merge into the totals (and the log)
+    public static void merge() {
+        synchronized (readLock) {
+            for (LatencyTimer timer : registry.getTimers()) {
+                mergeInterval(timer);
+            }
+        }
+    }
+
+    private static void mergeInterval(LatencyTimer timer) {
+        Histogram interval = timer.mergeInterval();
+        if (logWriter != null && interval.getTotalCount() > 0) {
+            interval.setTag(timer.getKey());
+            logWriter.outputIntervalHistogram(interval);
         }
     }
-    
+
+    // Copies of every timer's total by metric key, up to date as of this call
+    public static Map<String, Histogram> snapshot() {
+        return snapshot(false);
+    }
+
+    // As snapshot(), then starts the totals over, so consecutive calls cover consecutive intervals
+    public static Map<String, Histogram> snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private static Map<String, Histogram> snapshot(boolean reset) {
+        Map<String, Histogram> copies = new LinkedHashMap<>();
+        synchronized (readLock) {
+            for (LatencyTimer timer : registry.getTimers()) {
+                mergeInterval(timer);
+                copies.put(timer.getKey(), timer.copyTotal());
+                if (reset) {
+                    timer.resetTotal();
+                }
+            }
+        }
+        return copies;
+    }
+
+    // As snapshot(), with each timer's lifetime count and sum read under the same lock
+    static Map<String, Totals> totals() {
+        Map<String, Totals> totals = new LinkedHashMap<>();
+        synchronized (readLock) {
+            for (LatencyTimer timer : registry.getTimers()) {
+                mergeInterval(timer);
+                totals.put(timer.getKey(), new Totals(timer.copyTotal(), timer.getLifetimeCount(),
+                    timer.getLifetimeSumNanos()));
+            }
+        }
+        return totals;
+    }
+
+    // Appends every interval from now on to an HdrHistogram log, readable by HistogramLogReader
+    // and HistogramLogProcessor. Replaces any log already open.
+    public static void startLog(Path file) {
+        synchronized (readLock) {
+            stopLog();
+            // Intervals so far go to the totals only, so the first one logged starts after the base time
+            long now = System.currentTimeMillis();
+            merge();
+            HistogramLogWriter writer;
+            try {
+                writer = new HistogramLogWriter(file.toFile());
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException("Failed to open latency log " + file, e);
+            }
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(now);
+            writer.setBaseTime(now);
+            writer.outputLegend();
+            logWriter = writer;
+        }
+    }
+
+    public static void stopLog() {
+        synchronized (readLock) {
+            if (logWriter != null) {
+                merge();
+                logWriter.close();
+                logWriter = null;
+            }
+        }
+    }
+
     public static void logMetrics() {
         System.out.println("=== Latency Metrics ===");
-        histograms.forEach((stage, histogram) -> {
+        snapshot().forEach((stage, histogram) -> {
             System.out.printf("%s Latency (μs): min=%.2f, mean=%.2f, 99%%=%.2f, max=%.2f%n",
                 stage,
                 histogram.getMinValue() / 1000.0,
@@ -50,15 +179,30 @@ public class LatencyMonitor {
                 histogram.getValueAtPercentile(99.0) / 1000.0,
                 histogram.getMaxValue() / 1000.0);
         });
-        
+
         System.out.println("\n=== Throughput Metrics ===");
-        counters.forEach((name, counter) -> {
-            System.out.printf("%s: %d%n", name, counter.get());
-        });
+        for (Counter counter : registry.getCounters()) {
+            System.out.printf("%s: %d%n", counter.getKey(), counter.sum());
+        }
     }
-    
+
+    // Starts the histograms and counter sums over. Lifetime totals are kept, so exported counters
+    // stay monotonic.
     public static void reset() {
-        histograms.values().forEach(Histogram::reset);
-        counters.values().forEach(counter -> counter.set(0));
+        snapshotAndReset();
+        registry.getCounters().forEach(Counter::reset);
+    }
+
+    // A timer's histogram since the last reset, and its count and sum since registration
+    static final class Totals {
+        final Histogram histogram;
+        final long lifetimeCount;
+        final double lifetimeSumNanos;
+
+        Totals(Histogram histogram, long lifetimeCount, double lifetimeSumNanos) {
+            this.histogram = histogram;
+            this.lifetimeCount = lifetimeCount;
+            this.lifetimeSumNanos = lifetimeSumNanos;
+        }
     }
 }
@@ -0,0 +1,102 @@
+package com.example.pubsub.monitoring;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+// Handle to a registered latency histogram. record() goes into an HdrHistogram Recorder, wait-free
+// from any number of threads; LatencyMonitor periodically swaps the interval out and adds it to
+// the total, which is only ever touched under LatencyMonitor's read lock. Resetting the total
+// leaves the lifetime count and sum alone, so exported counters never go backwards.
+public final class LatencyTimer {
+    static final long HIGHEST_TRACKABLE_VALUE = 30_000_000_000L; // 30 seconds in nanos
+    static final int SIGNIFICANT_DIGITS = 2;
+
+    private final int index;
+    private final String name;
+    private final String pool;
+    private final Recorder recorder;
+    private final Histogram total;
+    private Histogram interval;
+    private long lifetimeCount;
+    private double lifetimeSumNanos;
+
+    LatencyTimer(int index, String name, String pool) {
+        this.index = index;
+        this.name = name;
+        this.pool = pool;
+        this.recorder = new Recorder(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+        this.total = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    }
+
+    // Out-of-range values are clamped rather than thrown from a worker thread
+    public void record(long nanos) {
+        recorder.recordValue(clamp(nanos));
+    }
+
+    // Coordinated-omission correction for a source that should produce one value every
+    // expectedIntervalNanos: a value longer than that also records the samples that would have
+    // been taken while it stalled (nanos - interval, nanos - 2 * interval, ...). Without a
+    // positive interval this is record().
+    public void record(long nanos, long expectedIntervalNanos) {
+        if (expectedIntervalNanos <= 0) {
+            record(nanos);
+            return;
+        }
+        recorder.recordValueWithExpectedInterval(clamp(nanos), expectedIntervalNanos);
+    }
+
+    private static long clamp(long nanos) {
+        return Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_VALUE));
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    // Moves what was recorded since the last call into the total and returns it; the returned
+    // histogram is reused by the next call
+    Histogram mergeInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        long count = interval.getTotalCount();
+        if (count > 0) {
+            lifetimeCount += count;
+            lifetimeSumNanos += interval.getMean() * count;
+        }
+        return interval;
+    }
+
+    Histogram copyTotal() {
+        return total.copy();
+    }
+
+    void resetTotal() {
+        total.reset();
+    }
+
+    long getLifetimeCount() {
+        return lifetimeCount;
+    }
+
+    double getLifetimeSumNanos() {
+        return lifetimeSumNanos;
+    }
+
+    // Position in MetricsRegistry.getTimers()
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Null for process-wide metrics
+    public String getPool() {
+        return pool;
+    }
+
+    public String getKey() {
+        return MetricsRegistry.key(name, pool);
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.pubsub.monitoring;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Publishes the global MetricsRegistry as Prometheus text on http://<address>/metrics and as the
+// com.example.pubsub:type=Metrics MBean. Every read works from histogram copies, counter sums and
+// gauge samples, so scrapes never block or lock the recording threads. Counters and the summaries'
+// _count and _sum are totals since startup, untouched by LatencyMonitor.reset(), so rate() holds;
+// quantiles cover what was recorded since the last reset. JMX clients read one attribute per call,
+// so the MBean reuses one read of every metric for ATTRIBUTE_CACHE_NANOS.
+//   pubsub_<counter>_total                          counters
+//   pubsub_<gauge>                                  gauges
+//   pubsub_<timer>_latency_seconds{quantile=...}    timers, as summaries with _sum and _count
+// Pooled metrics carry a pool="..." label. In JMX, attributes are named <name>[.<pool>], timers
+// as <name>[.<pool>].<statistic> in nanoseconds.
+public class MetricsExporter implements AutoCloseable {
+    public static final int DEFAULT_PORT = 9404;
+    public static final String OBJECT_NAME = "com.example.pubsub:type=Metrics";
+    private static final String PREFIX = "pubsub_";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    static final long ATTRIBUTE_CACHE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectName objectName;
+    private volatile CachedAttributes cachedAttributes;
+
+    // Binds to the loopback interface only
+    public static MetricsExporter start(int port) {
+        return new MetricsExporter(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    // -Dpubsub.metrics.port=<port> starts an exporter; null when the property is not set
+    public static MetricsExporter startFromProperty() {
+        Integer port = Integer.getInteger("pubsub.metrics.port");
+        return port == null ? null : start(port);
+    }
+
+    public MetricsExporter(InetSocketAddress address) {
+        this.registry = LatencyMonitor.registry();
+        try {
+            this.server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to bind metrics endpoint to " + address, e);
+        }
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(executor);
+
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        try {
+            this.objectName = new ObjectName(OBJECT_NAME);
+            if (mbeans.isRegistered(objectName)) {
+                mbeans.unregisterMBean(objectName);
+            }
+            mbeans.registerMBean(new MetricsMBean(), objectName);
+        } catch (JMException e) {
+            server.stop(0);
+            executor.shutdownNow();
+            throw new IllegalStateException("Failed to register metrics MBean", e);
+        }
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // The Prometheus text exposition of every registered metric
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        Map<String, List<Counter>> counters = new LinkedHashMap<>();
+        for (Counter counter : registry.getCounters()) {
+            counters.computeIfAbsent(counter.getName(), name -> new ArrayList<>()).add(counter);
+        }
+        counters.forEach((name, family) -> {
+            String metric = PREFIX + name + "_total";
+            out.append("# TYPE ").append(metric).append(" counter\n");
+            for (Counter counter : family) {
+                sample(out, metric, counter.getPool(), null, counter.total());
+            }
+        });
+
+        Map<String, List<Gauge>> gauges = new LinkedHashMap<>();
+        for (Gauge gauge : registry.getGauges()) {
+            gauges.computeIfAbsent(gauge.getName(), name -> new ArrayList<>()).add(gauge);
+        }
+        gauges.forEach((name, family) -> {
+            String metric = PREFIX + name;
+            out.append("# TYPE ").append(metric).append(" gauge\n");
+            for (Gauge gauge : family) {
+                sample(out, metric, gauge.getPool(), null, gauge.value());
+            }
+        });
+
+        Map<String, LatencyMonitor.Totals> totals = LatencyMonitor.totals();
+        Map<String, List<LatencyTimer>> timers = new LinkedHashMap<>();
+        for (LatencyTimer timer : registry.getTimers()) {
+            timers.computeIfAbsent(timer.getName(), name -> new ArrayList<>()).add(timer);
+        }
+        timers.forEach((name, family) -> {
+            String metric = PREFIX + name + "_latency_seconds";
+            out.append("# TYPE ").append(metric).append(" summary\n");
+            for (LatencyTimer timer : family) {
+                LatencyMonitor.Totals total = totals.get(timer.getKey());
+                if (total == null) {
+                    // Registered after the snapshot was taken
+                    continue;
+                }
+                for (double quantile : QUANTILES) {
+                    sample(out, metric, timer.getPool(), Double.toString(quantile),
+                        seconds(total.histogram.getValueAtPercentile(quantile * 100)));
+                }
+                sample(out, metric + "_sum", timer.getPool(), null, seconds(total.lifetimeSumNanos));
+                sample(out, metric + "_count", timer.getPool(), null, total.lifetimeCount);
+            }
+        });
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String metric, String pool, String quantile, double value) {
+        out.append(metric);
+        if (pool != null || quantile != null) {
+            out.append('{');
+            if (pool != null) {
+                out.append("pool=\"").append(pool).append('"');
+            }
+            if (quantile != null) {
+                out.append(pool != null ? "," : "").append("quantile=\"").append(quantile).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static double seconds(double nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String attributeName(String name, String pool) {
+        return pool == null ? name : name + "." + pool;
+    }
+
+    // Attribute values from one consistent read, reused by the calls that follow within the cache period
+    private Map<String, Object> attributes() {
+        CachedAttributes cached = cachedAttributes;
+        long now = System.nanoTime();
+        if (cached == null || now - cached.readNanos >= ATTRIBUTE_CACHE_NANOS) {
+            cached = new CachedAttributes(now, readAttributes());
+            cachedAttributes = cached;
+        }
+        return cached.values;
+    }
+
+    private Map<String, Object> readAttributes() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Counter counter : registry.getCounters()) {
+            values.put(attributeName(counter.getName(), counter.getPool()), counter.total());
+        }
+        for (Gauge gauge : registry.getGauges()) {
+            values.put(attributeName(gauge.getName(), gauge.getPool()), gauge.value());
+        }
+        Map<String, LatencyMonitor.Totals> totals = LatencyMonitor.totals();
+        for (LatencyTimer timer : registry.getTimers()) {
+            LatencyMonitor.Totals total = totals.get(timer.getKey());
+            if (total == null) {
+                continue;
+            }
+            Histogram histogram = total.histogram;
+            String prefix = attributeName(timer.getName(), timer.getPool()) + ".";
+            values.put(prefix + "count", total.lifetimeCount);
+            values.put(prefix + "mean", histogram.getMean());
+            values.put(prefix + "p50", histogram.getValueAtPercentile(50));
+            values.put(prefix + "p90", histogram.getValueAtPercentile(90));
+            values.put(prefix + "p99", histogram.getValueAtPercentile(99));
+            values.put(prefix + "p999", histogram.getValueAtPercentile(99.9));
+            values.put(prefix + "max", histogram.getMaxValue());
+        }
+        return values;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // Already replaced by another exporter
+        }
+    }
+
+    private static final class CachedAttributes {
+        final long readNanos;
+        final Map<String, Object> values;
+
+        CachedAttributes(long readNanos, Map<String, Object> values) {
+            this.readNanos = readNanos;
+            this.values = values;
+        }
+    }
+
+    // Read-only view whose attribute set follows the registry as metrics are added
+    private final class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = attributes().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException("Unknown metric: " + attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Object> values = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                Object value = values.get(name);
+                if (value != null) {
+                    list.add(new Attribute(name, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics MBean has no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            attributes().forEach((name, value) -> infos.add(new MBeanAttributeInfo(name,
+                value.getClass().getName(), name, true, false, false)));
+            return new MBeanInfo(MetricsExporter.class.getName(), "Pub/sub pipeline metrics",
+                infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.pubsub.monitoring;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+// Counters and latency timers, registered once at startup and then used through their handles,
+// so the per-trade path does no name hashing or map lookups. A metric is a name plus an optional
+// pool, for pools (actor pools, stage worker groups) that want their own copy of a metric.
+// Registering an existing metric returns the same handle; resolving a name that was never
+// registered throws, which turns a misspelt metric name into a startup failure. Gauges belong to
+// the component that samples them, so they can be replaced and unregistered.
+public final class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+    // Names also have to be valid Prometheus metric names
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final Pattern POOL = Pattern.compile("[^\\s,@\"\\\\]+");
+
+    // Written only under the registry lock; concurrent so counter()/timer() lookups never lock
+    private final Map<String, Counter> countersByKey;
+    private final Map<String, LatencyTimer> timersByKey;
+    private final Map<String, Gauge> gaugesByKey;
+    // Copy-on-write, indexed by handle index; readers never lock
+    private volatile Counter[] counters;
+    private volatile LatencyTimer[] timers;
+    private volatile Gauge[] gauges;
+
+    public MetricsRegistry() {
+        this.countersByKey = new ConcurrentHashMap<>();
+        this.timersByKey = new ConcurrentHashMap<>();
+        this.gaugesByKey = new LinkedHashMap<>();
+        this.counters = new Counter[0];
+        this.timers = new LatencyTimer[0];
+        this.gauges = new Gauge[0];
+    }
+
+    // The registry LatencyMonitor reports on
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    static String key(String name, String pool) {
+        return pool == null ? name : name + "@" + pool;
+    }
+
+    public Counter registerCounter(String name) {
+        return registerCounter(name, null);
+    }
+
+    public synchronized Counter registerCounter(String name, String pool) {
+        String key = checkedKey(name, pool);
+        Counter counter = countersByKey.get(key);
+        if (counter == null) {
+            counter = new Counter(counters.length, name, pool);
+            Counter[] grown = Arrays.copyOf(counters, counters.length + 1);
+            grown[counter.getIndex()] = counter;
+            countersByKey.put(key, counter);
+            counters = grown;
+        }
+        return counter;
+    }
+
+    public LatencyTimer registerTimer(String name) {
+        return registerTimer(name, null);
+    }
+
+    public synchronized LatencyTimer registerTimer(String name, String pool) {
+        String key = checkedKey(name, pool);
+        LatencyTimer timer = timersByKey.get(key);
+        if (timer == null) {
+            timer = new LatencyTimer(timers.length, name, pool);
+            LatencyTimer[] grown = Arrays.copyOf(timers, timers.length + 1);
+            grown[timer.getIndex()] = timer;
+            timersByKey.put(key, timer);
+            timers = grown;
+        }
+        return timer;
+    }
+
+    public Gauge registerGauge(String name, DoubleSupplier supplier) {
+        return registerGauge(name, null, supplier);
+    }
+
+    // Replaces any gauge already registered under the same name and pool
+    public synchronized Gauge registerGauge(String name, String pool, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(name, pool, supplier);
+        gaugesByKey.put(checkedKey(name, pool), gauge);
+        gauges = gaugesByKey.values().toArray(new Gauge[0]);
+        return gauge;
+    }
+
+    // Only removes the gauge if it has not been replaced since
+    public synchronized boolean unregister(Gauge gauge) {
+        if (!gaugesByKey.remove(gauge.getKey(), gauge)) {
+            return false;
+        }
+        gauges = gaugesByKey.values().toArray(new Gauge[0]);
+        return true;
+    }
+
+    public Counter counter(String name) {
+        return counter(name, null);
+    }
+
+    public Counter counter(String name, String pool) {
+        Counter counter = countersByKey.get(key(name, pool));
+        if (counter == null) {
+            throw new IllegalArgumentException("Unknown counter: " + key(name, pool));
+        }
+        return counter;
+    }
+
+    public LatencyTimer timer(String name) {
+        return timer(name, null);
+    }
+
+    public LatencyTimer timer(String name, String pool) {
+        LatencyTimer timer = timersByKey.get(key(name, pool));
+        if (timer == null) {
+            throw new IllegalArgumentException("Unknown latency timer: " + key(name, pool));
+        }
+        return timer;
+    }
+
+    // In registration order
+    public List<Counter> getCounters() {
+        return Collections.unmodifiableList(Arrays.asList(counters));
+    }
+
+    public List<LatencyTimer> getTimers() {
+        return Collections.unmodifiableList(Arrays.asList(timers));
+    }
+
+    public List<Gauge> getGauges() {
+        return Collections.unmodifiableList(Arrays.asList(gauges));
+    }
+
+    private static String checkedKey(String name, String pool) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        if (pool != null && !POOL.matcher(pool).matches()) {
+            throw new IllegalArgumentException("Invalid metric pool: " + pool);
+        }
+        return key(name, pool);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryMessageTest {
+
+    private static BinaryMessage message(MessageBufferPool pool, String topic, long value) {
+        BinaryMessage message = pool.acquire(topic);
+        message.writableBuffer().putLong(value);
+        return message.seal();
+    }
+
+    @Test
+    void pooledBufferIsRecycledAfterTheLastLane() {
+        MessageBufferPool pool = new MessageBufferPool(64, 1);
+        try (TopicBroker broker = new TopicBroker(false)) {
+            List<Long> seen = new ArrayList<>();
+            broker.subscribe(subscriber("ticks", message -> seen.add(((BinaryMessage) message).getLong(0))));
+            broker.subscribe(subscriber("ticks", message -> seen.add(((BinaryMessage) message).getLong(0))));
+
+            broker.publish(message(pool, "ticks", 42));
+
+            assertEquals(List.of(42L, 42L), seen);
+            assertEquals(1, pool.getAvailable());
+        }
+    }
+
+    @Test
+    void subscriberCanRetainAMessagePastOnMessage() {
+        MessageBufferPool pool = new MessageBufferPool(64, 1);
+        try (TopicBroker broker = new TopicBroker(false)) {
+            List<Message> kept = new ArrayList<>();
+            broker.subscribe(subscriber("ticks", message -> {
+                message.retain(1);
+                kept.add(message);
+            }));
+
+            broker.publish(message(pool, "ticks", 7));
+
+            // Still referenced by the subscriber, so the payload cannot be handed out again yet
+            assertEquals(0, pool.getAvailable());
+            BinaryMessage retained = (BinaryMessage) kept.get(0);
+            assertEquals(7L, retained.getLong(0));
+
+            retained.release();
+            assertEquals(1, pool.getAvailable());
+        }
+    }
+
+    @Test
+    void releasingTooOftenFails() {
+        MessageBufferPool pool = new MessageBufferPool(64, 1);
+        BinaryMessage message = message(pool, "ticks", 1);
+        message.release();
+
+        assertThrows(IllegalStateException.class, message::release);
+    }
+
+    private static Subscriber subscriber(String topic, Consumer<Message> onMessage) {
+        return new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                onMessage.accept(message);
+            }
+
+            @Override
+            public String getTopic() {
+                return topic;
+            }
+        };
+    }
+}
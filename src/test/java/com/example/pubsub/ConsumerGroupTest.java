@@ -0,0 +1,112 @@
+package com.example.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsumerGroupTest {
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    private static void awaitAtLeast(long expected, LongSupplier actual) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, actual.getAsLong());
+    }
+
+    @Test
+    void partitionsWithoutAnOwnerCountWhatTheyDrop() throws InterruptedException {
+        ConsumerGroup group = new ConsumerGroup("workers", "orders", 2, 16);
+        group.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                group.onMessage(new Message("order-" + i, "orders", "key-" + i));
+            }
+            awaitAtLeast(10, group::getDropped);
+
+            List<Message> received = new CopyOnWriteArrayList<>();
+            Subscriber member = subscriber("orders", received::add);
+            group.join(member);
+            group.onMessage(new Message("late", "orders", "key"));
+
+            awaitAtLeast(1, received::size);
+            assertEquals(10, group.getDropped());
+        } finally {
+            group.close();
+        }
+    }
+
+    @Test
+    void closingCountsMessagesStillQueuedInPartitions() throws InterruptedException {
+        ConsumerGroup group = new ConsumerGroup("workers", "orders", 1, 16);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        group.join(subscriber("orders", message -> {
+            entered.countDown();
+            awaitQuietly(release);
+        }));
+        group.start();
+
+        group.onMessage(new Message("first", "orders", "key"));
+        assertTrue(entered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 5; i++) {
+            group.onMessage(new Message("queued-" + i, "orders", "key"));
+        }
+        group.close();
+        release.countDown();
+
+        assertEquals(5, group.getDropped());
+    }
+
+    @Test
+    void leavingAsTheLastMemberCountsWhatTheGroupStillHeld() throws InterruptedException {
+        try (TopicBroker broker = new TopicBroker(false)) {
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Subscriber member = subscriber("orders", message -> {
+                entered.countDown();
+                awaitQuietly(release);
+            });
+            ConsumerGroup group = broker.joinGroup("workers", member, 1);
+
+            broker.publish(new Message("first", "orders", "key"));
+            assertTrue(entered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            broker.publish(new Message("queued", "orders", "key"));
+            broker.leaveGroup("workers", member);
+            release.countDown();
+
+            assertEquals(1, group.getDropped());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Subscriber subscriber(String topic, Consumer<Message> onMessage) {
+        return new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                onMessage.accept(message);
+            }
+
+            @Override
+            public String getTopic() {
+                return topic;
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicBrokerTest {
+
+    @Test
+    void inlineLanesDispatchOnThePublisherThread() {
+        try (TopicBroker broker = new TopicBroker(false)) {
+            RecordingSubscriber subscriber = new RecordingSubscriber("prices.AAPL");
+            broker.subscribe(subscriber);
+
+            assertEquals(1, broker.publish(new Message("150.25", "prices.AAPL")));
+            assertEquals(0, broker.publish(new Message("2750.00", "prices.GOOGL")));
+
+            assertEquals(List.of("150.25"), subscriber.contents());
+            assertEquals(Thread.currentThread(), subscriber.lastThread);
+        }
+    }
+
+    @Test
+    void dedicatedLanesDeliverInPublishOrder() throws InterruptedException {
+        try (TopicBroker broker = new TopicBroker(true)) {
+            CountDownLatch done = new CountDownLatch(100);
+            RecordingSubscriber subscriber = new RecordingSubscriber("orders", done);
+            broker.subscribe(subscriber);
+
+            for (int i = 0; i < 100; i++) {
+                broker.publish(new Message(Integer.toString(i), "orders"));
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Integer.toString(i), subscriber.contents().get(i));
+            }
+        }
+    }
+
+    @Test
+    void subscribingTwiceReturnsTheRegisteredLane() {
+        try (TopicBroker broker = new TopicBroker(false)) {
+            RecordingSubscriber subscriber = new RecordingSubscriber("orders");
+            SubscriberLane first = broker.subscribe(subscriber);
+
+            assertSame(first, broker.subscribe(subscriber));
+            assertEquals(1, broker.getSubscriberCount("orders"));
+        }
+    }
+
+    @Test
+    void unsubscribeStopsDelivery() {
+        try (TopicBroker broker = new TopicBroker(false)) {
+            RecordingSubscriber subscriber = new RecordingSubscriber("orders");
+            broker.subscribe(subscriber);
+            broker.publish(new Message("before", "orders"));
+
+            assertTrue(broker.unsubscribe(subscriber));
+            assertFalse(broker.unsubscribe(subscriber));
+            assertEquals(0, broker.publish(new Message("after", "orders")));
+            assertEquals(List.of("before"), subscriber.contents());
+        }
+    }
+
+    @Test
+    void routesStayCorrectPastTheRouteCacheLimit() {
+        try (TopicBroker broker = new TopicBroker(false)) {
+            RecordingSubscriber subscriber = new RecordingSubscriber("ticks.#");
+            broker.subscribe(subscriber);
+
+            int topics = 70_000;
+            long delivered = 0;
+            for (int i = 0; i < topics; i++) {
+                delivered += broker.publish(new Message("x", "ticks.t" + i));
+            }
+
+            assertEquals(topics, delivered);
+            assertEquals(topics, subscriber.contents().size());
+        }
+    }
+
+    @Test
+    void closedBrokerRejectsSubscribersAndDropsMessages() {
+        TopicBroker broker = new TopicBroker(false);
+        RecordingSubscriber subscriber = new RecordingSubscriber("orders");
+        broker.subscribe(subscriber);
+        broker.close();
+
+        assertEquals(0, broker.publish(new Message("late", "orders")));
+        assertThrows(IllegalStateException.class, () -> broker.subscribe(new RecordingSubscriber("orders")));
+        assertTrue(subscriber.contents().isEmpty());
+    }
+
+    static final class RecordingSubscriber implements Subscriber {
+        private final String topic;
+        private final CountDownLatch latch;
+        private final List<String> contents = new CopyOnWriteArrayList<>();
+        volatile Thread lastThread;
+
+        RecordingSubscriber(String topic) {
+            this(topic, null);
+        }
+
+        RecordingSubscriber(String topic, CountDownLatch latch) {
+            this.topic = topic;
+            this.latch = latch;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            contents.add(message.getContent());
+            lastThread = Thread.currentThread();
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+
+        @Override
+        public String getTopic() {
+            return topic;
+        }
+
+        List<String> contents() {
+            return contents;
+        }
+    }
+}
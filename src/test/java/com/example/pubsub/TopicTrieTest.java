@@ -0,0 +1,117 @@
+package com.example.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicTrieTest {
+    private static final String[] PATTERNS = {
+        "prices.equity.AAPL", "prices.*.AAPL", "prices.#", "#", "prices.equity.*", "*.*",
+        "prices.#.AAPL", "#.AAPL", "prices.fx", "prices.#.#", "orders.*"
+    };
+    private static final String[] TOPICS = {
+        "prices", "prices.equity", "prices.equity.AAPL", "prices.fx", "prices.fx.EURUSD",
+        "prices.equity.AAPL.bid", "orders.new", "orders", "AAPL", ""
+    };
+
+    private final TopicTrie trie = new TopicTrie();
+
+    private static SubscriberLane lane(String pattern) {
+        return new SubscriberLane(new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+            }
+
+            @Override
+            public String getTopic() {
+                return pattern;
+            }
+        });
+    }
+
+    private static Set<String> patterns(SubscriberLane[] lanes) {
+        Set<String> patterns = new HashSet<>();
+        for (SubscriberLane lane : lanes) {
+            assertTrue(patterns.add(lane.getSubscriber().getTopic()), "resolved twice: " + lane);
+        }
+        return patterns;
+    }
+
+    @Test
+    void singleWildcardMatchesExactlyOneSegment() {
+        trie.add("prices.*.AAPL", lane("prices.*.AAPL"));
+
+        assertEquals(Set.of("prices.*.AAPL"), patterns(trie.resolve("prices.equity.AAPL")));
+        assertEquals(0, trie.resolve("prices.AAPL").length);
+        assertEquals(0, trie.resolve("prices.equity.us.AAPL").length);
+        assertFalse(TopicTrie.matches("prices.*", "prices"));
+    }
+
+    @Test
+    void multiWildcardMatchesZeroOrMoreSegments() {
+        trie.add("prices.#", lane("prices.#"));
+        trie.add("#.AAPL", lane("#.AAPL"));
+
+        assertEquals(Set.of("prices.#"), patterns(trie.resolve("prices")));
+        assertEquals(Set.of("prices.#"), patterns(trie.resolve("prices.fx.EURUSD")));
+        assertEquals(Set.of("prices.#", "#.AAPL"), patterns(trie.resolve("prices.equity.AAPL")));
+        assertEquals(Set.of("#.AAPL"), patterns(trie.resolve("AAPL")));
+        assertEquals(0, trie.resolve("orders.new").length);
+    }
+
+    @Test
+    void resolveAgreesWithMatchesForEveryPatternAndTopic() {
+        for (String pattern : PATTERNS) {
+            trie.add(pattern, lane(pattern));
+        }
+        for (String topic : TOPICS) {
+            Set<String> expected = new HashSet<>();
+            for (String pattern : PATTERNS) {
+                if (TopicTrie.matches(pattern, topic)) {
+                    expected.add(pattern);
+                }
+            }
+            // Overlapping '#' paths reach some nodes more than once; each lane is still listed once
+            assertEquals(expected, patterns(trie.resolve(topic)), topic);
+        }
+    }
+
+    @Test
+    void addIsIdempotentPerSubscriberAndRemoveDetachesOnlyThatLane() {
+        SubscriberLane first = lane("prices.#");
+        SubscriberLane second = lane("prices.#");
+
+        assertSame(first, trie.add("prices.#", first));
+        assertSame(first, trie.add("prices.#", new SubscriberLane(first.getSubscriber())));
+        trie.add("prices.#", second);
+        assertEquals(2, trie.resolve("prices.fx").length);
+
+        assertSame(first, trie.remove("prices.#", first.getSubscriber()));
+        assertEquals(List.of(second), List.of(trie.resolve("prices.fx")));
+        assertNull(trie.remove("prices.#", first.getSubscriber()));
+        assertNull(trie.remove("orders.*", second.getSubscriber()));
+    }
+
+    @Test
+    void copyIsUnaffectedByLaterChanges() {
+        SubscriberLane lane = lane("prices.*");
+        trie.add("prices.*", lane);
+        TopicTrie copy = trie.copy();
+
+        trie.remove("prices.*", lane.getSubscriber());
+        trie.add("orders.*", lane("orders.*"));
+
+        assertEquals(1, copy.resolve("prices.fx").length);
+        assertEquals(0, copy.resolve("orders.new").length);
+        assertEquals(0, trie.resolve("prices.fx").length);
+        assertEquals(List.of(lane), copy.allLanes());
+    }
+}
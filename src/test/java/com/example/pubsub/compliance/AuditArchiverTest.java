@@ -0,0 +1,131 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.model.TradeDictionaries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditArchiverTest {
+    private static final long TIMEOUT_MILLIS = 5_000;
+    private static final AuditRotationPolicy COMPRESS = new AuditRotationPolicy(0, 0, true, 0, 0);
+    // No process has this pid, so a marker holding it was left by a writer that died
+    private static final String DEAD_PID = Long.toString(Long.MAX_VALUE);
+
+    @TempDir
+    Path directory;
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private Path log(String base) {
+        return directory.resolve(base + AuditSegments.TEXT_SUFFIX);
+    }
+
+    private Path compressed(String base) {
+        return directory.resolve(base + AuditSegments.TEXT_SUFFIX + AuditSegments.COMPRESSED_SUFFIX);
+    }
+
+    private Path marker(String base) {
+        return directory.resolve(base + AuditSegments.ACTIVE_SUFFIX);
+    }
+
+    private String segment(int second) throws IOException {
+        String base = AuditSegments.baseName(Instant.ofEpochSecond(1_700_000_000L + second));
+        Files.write(log(base), ("segment " + second + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        return base;
+    }
+
+    private static byte[] gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void compressesClosedSegmentsAndLeavesLiveOnesAlone() throws Exception {
+        String closed = segment(1);
+        String otherWriter = segment(2);
+        String crashed = segment(3);
+        String active = segment(4);
+        AuditSegments.markActive(directory, otherWriter);
+        Files.write(marker(crashed), DEAD_PID.getBytes(StandardCharsets.US_ASCII));
+        byte[] original = Files.readAllBytes(log(closed));
+
+        AuditArchiver archiver = new AuditArchiver(directory, COMPRESS);
+        archiver.setActiveSegment(active);
+        archiver.start();
+        try {
+            await(() -> Files.exists(compressed(closed)) && Files.exists(compressed(crashed)));
+
+            assertFalse(Files.exists(log(closed)));
+            assertArrayEquals(original, gunzip(compressed(closed)));
+            assertFalse(Files.exists(marker(crashed)), "stale marker should be cleared");
+            // Marked by a live process, or at or after the active segment: never touched
+            assertTrue(Files.exists(log(otherWriter)));
+            assertTrue(Files.exists(marker(otherWriter)));
+            assertTrue(Files.exists(log(active)));
+            assertFalse(Files.exists(compressed(active)));
+        } finally {
+            archiver.finish();
+        }
+    }
+
+    @Test
+    void rotatingSinkArchivesEverySegmentButTheOneBeingWritten() throws Exception {
+        AuditRotationPolicy policy = new AuditRotationPolicy(256, 0, true, 0, 0);
+        RotatingAuditSink sink = new RotatingAuditSink(directory, policy,
+            base -> new TextAuditSink(Paths.get(base + AuditSegments.TEXT_SUFFIX), AuditDurability.NONE, 0));
+        int symbol = TradeDictionaries.SYMBOLS.intern("AAPL");
+        try {
+            for (int i = 0; i < 20; i++) {
+                sink.append(System.currentTimeMillis() * 1_000_000L, 1, i, symbol, 150.25, 100, 0, 0,
+                    "EXECUTION", "SUCCESS");
+                sink.endBatch();
+                // Segment names have nanosecond resolution, but keep them apart on coarse clocks
+                Thread.sleep(1);
+            }
+            int closed = sink.getSegments() - 1;
+            assertTrue(closed > 0);
+
+            await(() -> files(AuditSegments.COMPRESSED_SUFFIX).size() == closed);
+            assertEquals(1, files(AuditSegments.TEXT_SUFFIX).size());
+            assertEquals(1, files(AuditSegments.ACTIVE_SUFFIX).size());
+        } finally {
+            sink.close();
+        }
+
+        await(() -> files(AuditSegments.TEXT_SUFFIX).isEmpty());
+        assertTrue(files(AuditSegments.ACTIVE_SUFFIX).isEmpty());
+        assertEquals(sink.getSegments(), files(AuditSegments.COMPRESSED_SUFFIX).size());
+    }
+
+    private List<Path> files(String suffix) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.model.TradeDictionaries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuditBinaryReaderTest {
+    private static final int TRADES = 50;
+    // Several index blocks, with every trade spread over all of them
+    private static final int RECORDS = AuditBinaryFormat.MAX_BLOCK_RECORDS * 2 + 1000;
+    private static final long START_NANOS = 1_700_000_000_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private final int symbol = TradeDictionaries.SYMBOLS.intern("AAPL");
+    private final int trader = TradeDictionaries.TRADERS.intern("TRADER1");
+    private final int account = TradeDictionaries.ACCOUNTS.intern("ACC1");
+
+    // Trades share the high half in pairs, so lookups must compare the low half too
+    private static long idHi(int trade) {
+        return 1_000 + trade / 2;
+    }
+
+    private static long idLo(int trade) {
+        return 0x8000_0000_0000_0000L | trade;
+    }
+
+    private void append(BinaryAuditSink sink, int recordNumber) {
+        int trade = recordNumber % TRADES;
+        sink.append(START_NANOS + recordNumber * 1_000L, idHi(trade), idLo(trade), symbol, 100 + recordNumber,
+            recordNumber, trader, account, "EXECUTION", recordNumber % 3 == 0 ? null : "SUCCESS");
+    }
+
+    private static List<Long> lookup(AuditBinaryReader reader, int trade) throws IOException {
+        List<Long> found = new ArrayList<>();
+        reader.lookup(idHi(trade), idLo(trade), record -> {
+            assertEquals(idHi(trade), record.tradeIdHi);
+            assertEquals(idLo(trade), record.tradeIdLo);
+            assertEquals(record.recordNumber, record.quantity);
+            found.add(record.recordNumber);
+        });
+        return found;
+    }
+
+    private static List<Long> expected(int trade, int records) {
+        List<Long> numbers = new ArrayList<>();
+        for (long i = trade; i < records; i += TRADES) {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+
+    @Test
+    void lookupFindsEveryRecordOfATradeInFileOrder() throws IOException {
+        Path base = directory.resolve("audit");
+        try (BinaryAuditSink sink = new BinaryAuditSink(base, AuditDurability.NONE, 0)) {
+            for (int i = 0; i < RECORDS; i++) {
+                append(sink, i);
+            }
+            sink.endBatch();
+        }
+
+        try (AuditBinaryReader reader = AuditBinaryReader.open(
+                BinaryAuditSink.withSuffix(base, AuditBinaryFormat.RECORDS_SUFFIX))) {
+            assertEquals(RECORDS, reader.getRecordCount());
+            for (int trade = 0; trade < TRADES; trade++) {
+                assertEquals(expected(trade, RECORDS), lookup(reader, trade), "trade " + trade);
+            }
+            List<Long> none = new ArrayList<>();
+            reader.lookup(idHi(2), idLo(1), record -> none.add(record.recordNumber));
+            assertEquals(List.of(), none);
+        }
+    }
+
+    @Test
+    void recordsPastTheLastIndexBlockAreStillFound() throws IOException {
+        Path base = directory.resolve("audit");
+        int records = AuditBinaryFormat.MAX_BLOCK_RECORDS + 500;
+        try (BinaryAuditSink sink = new BinaryAuditSink(base, AuditDurability.NONE, 0)) {
+            for (int i = 0; i < records; i++) {
+                append(sink, i);
+            }
+            // Only the first block is full; the rest has no index entry until the sink closes
+            sink.endBatch();
+
+            try (AuditBinaryReader reader = AuditBinaryReader.open(
+                    BinaryAuditSink.withSuffix(base, AuditBinaryFormat.RECORDS_SUFFIX))) {
+                assertEquals(expected(7, records), lookup(reader, 7));
+            }
+        }
+    }
+
+    @Test
+    void rangeAndForEachDecodeTheRecords() throws IOException {
+        Path base = directory.resolve("audit");
+        try (BinaryAuditSink sink = new BinaryAuditSink(base, AuditDurability.NONE, 0)) {
+            for (int i = 0; i < RECORDS; i++) {
+                append(sink, i);
+            }
+        }
+
+        try (AuditBinaryReader reader = AuditBinaryReader.open(
+                BinaryAuditSink.withSuffix(base, AuditBinaryFormat.RECORDS_SUFFIX))) {
+            List<Long> inRange = new ArrayList<>();
+            reader.range(START_NANOS + 4_000_000L, START_NANOS + 4_100_000L, record -> inRange.add(record.recordNumber));
+            assertEquals(101, inRange.size());
+            assertEquals(4_000L, (long) inRange.get(0));
+
+            long[] visited = new long[1];
+            reader.forEach(record -> {
+                assertEquals("AAPL", record.symbol);
+                assertEquals("TRADER1", record.trader);
+                assertEquals("ACC1", record.account);
+                assertEquals("EXECUTION", record.event);
+                if (record.recordNumber % 3 == 0) {
+                    assertNull(record.details);
+                } else {
+                    assertEquals("SUCCESS", record.details);
+                }
+                assertEquals(100.0 + record.recordNumber, record.price);
+                visited[0]++;
+            });
+            assertEquals(RECORDS, visited[0]);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.latency.Clock;
+import com.example.pubsub.model.TradeIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The encoder promises byte-for-byte the output of the String.format line it replaced
+class AuditLineEncoderTest {
+    private static final int SAMPLES = 200_000;
+    private static final String LINE_FORMAT = "%s|%s|%s|%.4f|%d|%s|%s|%s|%s";
+
+    private final Random random = new Random(42);
+    private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    private String encoded(Consumer<ByteBuffer> encoder) {
+        buffer.clear();
+        encoder.accept(buffer);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private void assertPrice(double price) {
+        assertEquals(String.format("%.4f", price), encoded(dst -> AuditLineEncoder.putPrice(dst, price)),
+            () -> "price " + price);
+    }
+
+    private void assertTimestamp(long epochNanos) {
+        String expected = Clock.toInstant(epochNanos).truncatedTo(ChronoUnit.MICROS).toString();
+        assertEquals(expected, encoded(dst -> AuditLineEncoder.putTimestamp(dst, epochNanos)),
+            () -> "timestamp " + epochNanos);
+    }
+
+    @Test
+    void pricesMatchTheFormatter() {
+        double[] edges = {0.0, -0.0, 0.00005, 0.00015, 1.23455, -1.23455, 0.99995, 9.99995, 150.5,
+            -0.00004, 999_999_999.99995, 1e9, 1e15, -1e300, Double.MIN_VALUE, Double.MAX_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double price : edges) {
+            assertPrice(price);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            // Ties at the fifth decimal are where rounding goes wrong, so they get a share of their own
+            assertPrice(random.nextDouble() * Math.pow(10, random.nextInt(10)));
+            assertPrice((random.nextInt(2_000_000_000) * 10L + 5) / 100_000.0);
+            assertPrice(-random.nextDouble() * 1000);
+        }
+    }
+
+    @Test
+    void timestampsMatchInstantAtMicrosecondPrecision() {
+        long[] edges = {0L, -1L, 1_000L, 999L, 1_000_000L, 1_000_000_000L, -1_000_000_000L,
+            951_782_400_000_000_000L /* 2000-02-29 */, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long nanos : edges) {
+            assertTimestamp(nanos);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            long nanos = random.nextLong();
+            assertTimestamp(nanos);
+            // Whole seconds and whole milliseconds print shorter fractions
+            assertTimestamp(nanos / 1_000_000_000L * 1_000_000_000L);
+            assertTimestamp(nanos / 1_000_000L * 1_000_000L);
+        }
+    }
+
+    @Test
+    void integersMatchTheFormatter() {
+        int[] edges = {0, -1, 9, 10, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : edges) {
+            assertEquals(String.format("%d", value), encoded(dst -> AuditLineEncoder.putInt(dst, value)));
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            int value = random.nextInt();
+            assertEquals(String.format("%d", value), encoded(dst -> AuditLineEncoder.putInt(dst, value)));
+        }
+    }
+
+    @Test
+    void wholeLinesMatchTheFormatter() {
+        String[] strings = {"AAPL", "", null, "Zürich", "東京", "EUR€/USD💵", "lone\uD800surrogate", "end\uDC00"};
+        for (int i = 0; i < 10_000; i++) {
+            long timestamp = random.nextLong();
+            long hi = random.nextLong();
+            long lo = random.nextLong();
+            String symbol = strings[random.nextInt(strings.length)];
+            double price = random.nextDouble() * 10_000;
+            int quantity = random.nextInt();
+            String trader = strings[random.nextInt(strings.length)];
+            String account = strings[random.nextInt(strings.length)];
+            String event = strings[random.nextInt(strings.length)];
+            String details = strings[random.nextInt(strings.length)];
+
+            String expected = String.format(LINE_FORMAT,
+                Clock.toInstant(timestamp).truncatedTo(ChronoUnit.MICROS), TradeIdGenerator.format(hi, lo),
+                symbol, price, quantity, trader, account, event, details) + System.lineSeparator();
+            buffer.clear();
+            AuditLineEncoder.encode(buffer, timestamp, hi, lo, symbol, price, quantity, trader, account,
+                event, details);
+
+            // Compared as bytes: an unpaired surrogate must come out as '?' just as getBytes(UTF_8) writes it
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOf(buffer.array(), buffer.position()), expected);
+            assertTrue(buffer.position() <= AuditLineEncoder.maxLength(symbol, price, trader,
+                account, event, details));
+        }
+    }
+}
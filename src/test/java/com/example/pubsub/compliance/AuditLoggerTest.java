@@ -0,0 +1,108 @@
+package com.example.pubsub.compliance;
+
+import com.example.pubsub.model.OrderType;
+import com.example.pubsub.model.TradeDictionaries;
+import com.example.pubsub.model.TradeRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLoggerTest {
+    private static final int QUEUE_SIZE = 128 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private static TradeRecord record() {
+        TradeRecord record = new TradeRecord().wrap(ByteBuffer.allocate(TradeRecord.SLOT_SIZE), 0);
+        return record.init(TradeDictionaries.SYMBOLS.intern("AAPL"), TradeRecord.toFixedPrice(150.5), 100,
+            TradeDictionaries.VENUES.intern("NYSE"), OrderType.MARKET,
+            TradeDictionaries.COUNTERPARTIES.intern("CP1"), TradeDictionaries.TRADERS.intern("TRADER1"),
+            TradeDictionaries.ACCOUNTS.intern("ACC1"), 0L);
+    }
+
+    private AuditLogger newLogger() {
+        // No rotation, so the closed segment is not compressed away underneath the assertions
+        return new AuditLogger(directory, AuditDurability.NONE, 100, AuditFormat.TEXT, AuditRotationPolicy.NONE);
+    }
+
+    private List<String> lines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(AuditSegments.TEXT_SUFFIX)) {
+                    lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void everyEventLoggedBeforeStopIsWritten() throws Exception {
+        AuditLogger logger = newLogger();
+        Thread writer = new Thread(logger);
+        writer.start();
+        TradeRecord record = record();
+
+        for (int i = 0; i < 10_000; i++) {
+            logger.logTradeEvent(record, "VALIDATION", "SUCCESS");
+        }
+        logger.stop();
+        writer.join();
+
+        List<String> lines = lines();
+        assertEquals(10_000, lines.size());
+        assertEquals(0, logger.getLostEvents());
+        assertTrue(lines.get(0).endsWith("|VALIDATION|SUCCESS"), lines.get(0));
+    }
+
+    @Test
+    void eventsLoggedAfterStopAreCountedAsLost() throws Exception {
+        AuditLogger logger = newLogger();
+        Thread writer = new Thread(logger);
+        writer.start();
+        logger.stop();
+        writer.join();
+
+        logger.logTradeEvent(record(), "EXECUTION", "SUCCESS");
+
+        assertEquals(1, logger.getLostEvents());
+        assertTrue(lines().isEmpty());
+    }
+
+    @Test
+    void producerBlockedOnAFullRingReturnsOnceStopped() throws Exception {
+        // No writer thread: nothing frees ring space, as after the writer has exited
+        AuditLogger logger = newLogger();
+        TradeRecord record = record();
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            logger.logTradeEvent(record, "VALIDATION", "SUCCESS");
+        }
+
+        Thread producer = new Thread(() -> logger.logTradeEvent(record(), "EXECUTION", "SUCCESS"));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "producer should wait while the writer may still catch up");
+
+        logger.stop();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertFalse(producer.isAlive());
+        assertEquals(1, logger.getLostEvents());
+        assertEquals(1, logger.getBackpressured());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.pubsub.latency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrayQueueTest {
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final List<IntFunction<PaddedArrayQueue<Integer>>> QUEUES = List.of(
+        SpscArrayQueue::new, MpscArrayQueue::new, MpmcArrayQueue::new);
+
+    @Test
+    void capacityRoundsUpToAPowerOfTwoAndIsEnforced() {
+        for (IntFunction<PaddedArrayQueue<Integer>> factory : QUEUES) {
+            PaddedArrayQueue<Integer> queue = factory.apply(5);
+            assertEquals(8, queue.capacity());
+            for (int i = 0; i < 8; i++) {
+                assertTrue(queue.offer(i));
+            }
+            assertFalse(queue.offer(8), queue.getClass().getSimpleName());
+            assertEquals(8, queue.size());
+            assertThrows(IllegalArgumentException.class, () -> factory.apply(0));
+            assertThrows(NullPointerException.class, () -> factory.apply(4).offer(null));
+        }
+    }
+
+    @Test
+    void keepsFifoOrderAcrossManyWrapArounds() {
+        for (IntFunction<PaddedArrayQueue<Integer>> factory : QUEUES) {
+            PaddedArrayQueue<Integer> queue = factory.apply(4);
+            int next = 0;
+            int expected = 0;
+            for (int lap = 0; lap < 1_000; lap++) {
+                // Uneven batches so head and tail land on every slot
+                for (int i = 0; i < 1 + lap % 4; i++) {
+                    assertTrue(queue.offer(next++));
+                }
+                assertEquals(expected, queue.peek());
+                for (int i = 0; i < 1 + lap % 4; i++) {
+                    assertEquals(expected++, queue.poll());
+                }
+            }
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    void snapshotListsElementsFromHeadToTail() {
+        for (IntFunction<PaddedArrayQueue<Integer>> factory : QUEUES) {
+            PaddedArrayQueue<Integer> queue = factory.apply(4);
+            for (int i = 0; i < 6; i++) {
+                queue.offer(i);
+                if (i % 2 == 1) {
+                    queue.poll();
+                }
+            }
+            assertEquals(List.of(3, 4, 5), queue.snapshot());
+        }
+    }
+
+    @Test
+    void mpmcHandsEveryElementToExactlyOneConsumer() throws InterruptedException {
+        // Parking rather than spinning, so the test also makes progress on a single core
+        BlockingQueueAdapter<Integer> queue = new BlockingQueueAdapter<>(
+            new MpmcArrayQueue<>(64, new ParkingWaitStrategy()));
+        int producers = 4;
+        int perProducer = 10_000;
+        int total = producers * perProducer;
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        if (!queue.offer(base + i, TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < 3; c++) {
+            threads.add(new Thread(() -> {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+                try {
+                    while (seen.size() < total && System.nanoTime() < deadline) {
+                        Integer element = queue.poll(1, TimeUnit.MILLISECONDS);
+                        if (element != null && !seen.add(element)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS + 1));
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(total, seen.size());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void adapterTimesOutWhenFullAndDrains() throws InterruptedException {
+        BlockingQueueAdapter<Integer> queue = BlockingQueueAdapter.forConcurrency(2, 1, 2,
+            new ParkingWaitStrategy());
+        assertTrue(queue.getQueue() instanceof MpscArrayQueue);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertEquals(0, queue.remainingCapacity());
+
+        long start = System.nanoTime();
+        assertFalse(queue.offer(3, 20, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        Set<Integer> drained = new HashSet<>();
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(Set.of(1, 2), drained);
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.pubsub.latency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreciseClockTest {
+    private static final long TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    void tracksTheWallClock() {
+        try (PreciseClock clock = new PreciseClock()) {
+            long wall = Clock.toEpochNanos(Instant.now());
+            long precise = clock.nanos();
+
+            assertTrue(Math.abs(precise - wall) < TOLERANCE_NANOS, "off by " + (precise - wall) + "ns");
+        }
+    }
+
+    @Test
+    void calibrationErrorIsWellUnderAMillisecond() {
+        try (PreciseClock clock = new PreciseClock(0)) {
+            assertTrue(clock.getCalibrationErrorNanos() < TimeUnit.MILLISECONDS.toNanos(1),
+                "error " + clock.getCalibrationErrorNanos() + "ns");
+        }
+    }
+
+    @Test
+    void backgroundRecalibrationKeepsTheClockOnWallTime() throws InterruptedException {
+        try (PreciseClock clock = new PreciseClock(TimeUnit.MILLISECONDS.toNanos(10))) {
+            Thread.sleep(50);
+            long wall = Clock.toEpochNanos(Instant.now());
+
+            assertTrue(Math.abs(clock.nanos() - wall) < TOLERANCE_NANOS);
+        }
+    }
+
+    @Test
+    void isMonotonicWithoutRecalibration() {
+        try (PreciseClock clock = new PreciseClock(0)) {
+            long previous = clock.nanos();
+            for (int i = 0; i < 100_000; i++) {
+                long now = clock.nanos();
+                assertTrue(now >= previous);
+                previous = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.pubsub.latency;
+
+import com.example.pubsub.exceptions.AlertException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequencerTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    void consumersOnlyAdvanceOverAGapFreeRun() {
+        Sequencer sequencer = new Sequencer(8);
+        SequenceBarrier barrier = sequencer.newBarrier();
+        long first = sequencer.next();
+        long second = sequencer.next();
+        long third = sequencer.next();
+
+        sequencer.publish(third);
+        sequencer.publish(first);
+        assertEquals(first, barrier.waitFor(first));
+        assertFalse(sequencer.isAvailable(second));
+
+        sequencer.publish(second);
+        assertEquals(third, barrier.waitFor(first));
+    }
+
+    @Test
+    void producersCannotWrapPastTheSlowestGatingSequence() {
+        Sequencer sequencer = new Sequencer(4);
+        Sequence slow = new Sequence();
+        Sequence fast = new Sequence();
+        sequencer.addGatingSequences(slow, fast);
+
+        long last = sequencer.tryNext(4);
+        sequencer.publish(0, last);
+        assertEquals(-1, sequencer.tryNext());
+        assertEquals(0, sequencer.remainingCapacity());
+
+        fast.set(last);
+        assertEquals(-1, sequencer.tryNext());
+        slow.set(0);
+        assertEquals(last + 1, sequencer.tryNext());
+
+        // A removed consumer no longer holds producers back
+        assertTrue(sequencer.removeGatingSequence(slow));
+        assertEquals(last + 4, sequencer.tryNext(3));
+    }
+
+    @Test
+    void rejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new Sequencer(6));
+        Sequencer sequencer = new Sequencer(4);
+        assertThrows(IllegalArgumentException.class, () -> sequencer.next(0));
+        assertThrows(IllegalArgumentException.class, () -> sequencer.tryNext(5));
+    }
+
+    @Test
+    void laterStageWaitsForTheStageBeforeIt() throws Exception {
+        Sequencer sequencer = new Sequencer(8, new ParkingWaitStrategy());
+        Sequence firstStage = new Sequence();
+        SequenceBarrier secondStage = sequencer.newBarrier(firstStage);
+        sequencer.publish(sequencer.next());
+
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> secondStage.waitFor(0));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        firstStage.set(0);
+        assertEquals(0, waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void alertReleasesAWaitingConsumer() throws Exception {
+        Sequencer sequencer = new Sequencer(8, new ParkingWaitStrategy());
+        SequenceBarrier barrier = sequencer.newBarrier();
+
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> barrier.waitFor(0));
+        Thread.sleep(50);
+        barrier.alert();
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertInstanceOf(AlertException.class, failure.getCause());
+        assertTrue(barrier.isAlerted());
+        barrier.clearAlert();
+        assertFalse(barrier.isAlerted());
+    }
+
+    @Test
+    void everyClaimFromConcurrentProducersIsConsumedOnce() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 5_000;
+        int total = producers * perProducer;
+        Sequencer sequencer = new Sequencer(64, new ParkingWaitStrategy());
+        AtomicLongArray slots = new AtomicLongArray(64);
+        Sequence consumed = new Sequence();
+        sequencer.addGatingSequences(consumed);
+        SequenceBarrier barrier = sequencer.newBarrier();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence = sequencer.next();
+                    slots.set((int) sequence & 63, producer * (long) perProducer + i);
+                    sequencer.publish(sequence);
+                }
+            }));
+        }
+        boolean[] seen = new boolean[total];
+        int[] duplicates = new int[1];
+        Thread consumer = new Thread(() -> {
+            long next = 0;
+            while (next < total) {
+                long available = barrier.waitFor(next);
+                for (; next <= available; next++) {
+                    int value = (int) slots.get((int) next & 63);
+                    if (seen[value]) {
+                        duplicates[0]++;
+                    }
+                    seen[value] = true;
+                }
+                consumed.set(available);
+            }
+        });
+        threads.add(consumer);
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+
+        assertFalse(consumer.isAlive());
+        assertEquals(0, duplicates[0]);
+        for (int i = 0; i < total; i++) {
+            assertTrue(seen[i], "missing " + i);
+        }
+        assertEquals(total - 1, sequencer.getCursor());
+    }
+}
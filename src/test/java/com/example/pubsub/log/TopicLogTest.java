@@ -0,0 +1,144 @@
+package com.example.pubsub.log;
+
+import com.example.pubsub.Message;
+import com.example.pubsub.Subscriber;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopicLogTest {
+    private static final int SMALL_SEGMENT = 256;
+
+    @TempDir
+    Path directory;
+
+    private static List<Message> replay(TopicLog log, long from) {
+        List<Message> replayed = new ArrayList<>();
+        Subscriber collector = new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                // The payload view is only valid while the log is open; copy what the assertions need
+                replayed.add(new Message(message.getContent(), message.getTopic(), message.getKey()));
+            }
+
+            @Override
+            public String getTopic() {
+                return log.getTopic();
+            }
+        };
+        TopicLogReader reader = log.reader(from);
+        while (reader.poll(collector, 100) > 0) {
+            // drain
+        }
+        return replayed;
+    }
+
+    @Test
+    void replaysEverythingAfterReopen() {
+        try (TopicLog log = TopicLog.open(directory, "orders", SMALL_SEGMENT)) {
+            for (int i = 0; i < 50; i++) {
+                log.append(new Message("order-" + i, "orders"));
+            }
+        }
+
+        try (TopicLog reopened = TopicLog.open(directory, "orders", SMALL_SEGMENT)) {
+            List<Message> replayed = replay(reopened, TopicLog.EARLIEST);
+
+            assertEquals(50, replayed.size());
+            for (int i = 0; i < 50; i++) {
+                assertEquals("order-" + i, replayed.get(i).getContent());
+            }
+            // Appends continue after the recovered tail
+            long offset = reopened.append(new Message("order-50", "orders"));
+            assertEquals("order-50", replay(reopened, offset).get(0).getContent());
+        }
+    }
+
+    @Test
+    void emptyPayloadsAreLoggedAndReplayed() {
+        try (TopicLog log = TopicLog.open(directory, "heartbeats", SMALL_SEGMENT)) {
+            log.append(new Message("", "heartbeats"));
+            log.append(new Message("after", "heartbeats"));
+        }
+
+        try (TopicLog reopened = TopicLog.open(directory, "heartbeats", SMALL_SEGMENT)) {
+            List<Message> replayed = replay(reopened, TopicLog.EARLIEST);
+
+            assertEquals(2, replayed.size());
+            assertEquals("", replayed.get(0).getContent());
+            assertEquals("after", replayed.get(1).getContent());
+        }
+    }
+
+    @Test
+    void keysSurviveReplay() {
+        try (TopicLog log = TopicLog.open(directory, "prices", SMALL_SEGMENT)) {
+            log.append(new Message("150.25", "prices", "AAPL"));
+            log.append(new Message("unkeyed", "prices"));
+            log.append(new Message("1.0842", "prices", "EUR€/USD💵"));
+        }
+
+        try (TopicLog reopened = TopicLog.open(directory, "prices", SMALL_SEGMENT)) {
+            List<Message> replayed = replay(reopened, TopicLog.EARLIEST);
+
+            assertEquals("AAPL", replayed.get(0).getKey());
+            assertEquals("150.25", replayed.get(0).getContent());
+            assertNull(replayed.get(1).getKey());
+            assertEquals("EUR€/USD💵", replayed.get(2).getKey());
+            assertEquals("1.0842", replayed.get(2).getContent());
+        }
+    }
+
+    @Test
+    void recoveryIgnoresFilesThatAreNotSegments() throws IOException {
+        try (TopicLog log = TopicLog.open(directory, "orders", SMALL_SEGMENT)) {
+            log.append(new Message("kept", "orders"));
+        }
+        Files.write(directory.resolve("orders").resolve("notes.log"), new byte[] {1, 2, 3});
+
+        try (TopicLog reopened = TopicLog.open(directory, "orders", SMALL_SEGMENT)) {
+            assertEquals(List.of("kept"), contents(replay(reopened, TopicLog.EARLIEST)));
+        }
+    }
+
+    @Test
+    void readersStartFromLatestOrAGivenOffset() {
+        try (TopicLog log = TopicLog.open(directory, "orders", SMALL_SEGMENT)) {
+            log.append(new Message("a", "orders"));
+            long second = log.append(new Message("b", "orders"));
+            TopicLogReader latest = log.reader(TopicLog.LATEST);
+            log.append(new Message("c", "orders"));
+
+            assertEquals(List.of("b", "c"), contents(replay(log, second)));
+            assertEquals(TopicLog.HEADER_SIZE + TopicLog.KEY_HEADER_SIZE + 1, latest.getLag());
+            assertThrows(IllegalArgumentException.class, () -> log.reader(log.getEndOffset() + 1));
+        }
+    }
+
+    @Test
+    void closedLogRejectsAppendsAndReaders() {
+        TopicLog log = TopicLog.open(directory, "orders", SMALL_SEGMENT);
+        log.append(new Message("a", "orders"));
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> log.append(new Message("b", "orders")));
+        assertThrows(IllegalStateException.class, () -> log.reader(TopicLog.EARLIEST));
+    }
+
+    private static List<String> contents(List<Message> messages) {
+        List<String> contents = new ArrayList<>();
+        for (Message message : messages) {
+            contents.add(message.getContent());
+        }
+        return contents;
+    }
+}
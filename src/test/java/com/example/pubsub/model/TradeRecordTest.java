@@ -0,0 +1,72 @@
+package com.example.pubsub.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeRecordTest {
+    private static final long MAX_NOTIONAL_FIXED = TradeRecord.toFixedPrice(50_000_000.0);
+
+    private static TradeRecord record(long priceFixed, int quantity) {
+        TradeRecord record = new TradeRecord().wrap(ByteBuffer.allocateDirect(TradeRecord.SLOT_SIZE), 0);
+        return record.init(1, priceFixed, quantity, 2, OrderType.LIMIT, 3, 4, 5, 0L);
+    }
+
+    @Test
+    void notionalIsExactBelowTheOverflowBoundary() {
+        int quantity = 1_000_000;
+        long priceFixed = Long.MAX_VALUE / quantity;
+
+        assertEquals(priceFixed * quantity, record(priceFixed, quantity).getNotionalFixed());
+    }
+
+    @Test
+    void notionalSaturatesOneTickPastTheOverflowBoundary() {
+        int quantity = 1_000_000;
+        long priceFixed = Long.MAX_VALUE / quantity + 1;
+
+        assertEquals(Long.MAX_VALUE, record(priceFixed, quantity).getNotionalFixed());
+    }
+
+    @Test
+    void oversizedTradeStillBreachesTheRiskLimit() {
+        // 100,000 x 1,000,000 = 1e11, which wrapped to a negative notional before saturation
+        TradeRecord record = record(TradeRecord.toFixedPrice(100_000.0), 1_000_000);
+
+        assertTrue(record.getNotionalFixed() > MAX_NOTIONAL_FIXED);
+    }
+
+    @Test
+    void largestQuantityAtTheLargestPriceSaturates() {
+        TradeRecord record = record(Long.MAX_VALUE, Integer.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, record.getNotionalFixed());
+    }
+
+    @Test
+    void negativeOverflowSaturatesToMinValue() {
+        TradeRecord record = record(Long.MIN_VALUE / 2, 3);
+
+        assertEquals(Long.MIN_VALUE, record.getNotionalFixed());
+    }
+
+    @Test
+    void initAssignsAFreshIdAndResetsTheSlot() {
+        ByteBuffer slot = ByteBuffer.allocateDirect(TradeRecord.SLOT_SIZE);
+        TradeRecord record = new TradeRecord().wrap(slot, 0);
+        record.init(1, TradeRecord.toFixedPrice(10.0), 100, 2, OrderType.MARKET, 3, 4, 5, 42L);
+        long firstLo = record.getTradeIdLo();
+        record.reject(TradeRecord.REJECT_NOTIONAL, 43L);
+
+        record.init(6, TradeRecord.toFixedPrice(20.0), 200, 7, OrderType.LIMIT, 8, 9, 10, 44L);
+
+        assertNotEquals(firstLo, record.getTradeIdLo());
+        assertEquals(TradeStatus.RECEIVED, record.getStatus());
+        assertEquals(TradeRecord.REJECT_NONE, record.getRejectCode());
+        assertEquals(TradeRecord.toFixedPrice(20.0) * 200, record.getNotionalFixed());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.pubsub.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsExporterTest {
+
+    private static String sample(String scrape, String metric) {
+        for (String line : scrape.split("\n")) {
+            if (line.startsWith(metric + " ")) {
+                return line.substring(metric.length() + 1);
+            }
+        }
+        throw new AssertionError(metric + " missing from:\n" + scrape);
+    }
+
+    private static void awaitCacheExpiry() throws InterruptedException {
+        Thread.sleep(MetricsExporter.ATTRIBUTE_CACHE_NANOS / 1_000_000 + 50);
+    }
+
+    @Test
+    void countsSurviveAReset() {
+        MetricsRegistry registry = LatencyMonitor.registry();
+        Counter counter = registry.registerCounter("exporter_test_events", "reset");
+        LatencyTimer timer = registry.registerTimer("exporter_test_stage", "reset");
+
+        try (MetricsExporter exporter = MetricsExporter.start(0)) {
+            counter.add(3);
+            timer.record(1_000);
+            timer.record(1_000);
+            String before = exporter.scrape();
+            assertEquals("3", sample(before, "pubsub_exporter_test_events_total{pool=\"reset\"}"));
+            assertEquals("2", sample(before, "pubsub_exporter_test_stage_latency_seconds_count{pool=\"reset\"}"));
+
+            LatencyMonitor.reset();
+            counter.increment();
+            timer.record(1_000);
+            String after = exporter.scrape();
+
+            assertEquals(1, counter.sum());
+            assertEquals("4", sample(after, "pubsub_exporter_test_events_total{pool=\"reset\"}"));
+            assertEquals("3", sample(after, "pubsub_exporter_test_stage_latency_seconds_count{pool=\"reset\"}"));
+            double sum = Double.parseDouble(
+                sample(after, "pubsub_exporter_test_stage_latency_seconds_sum{pool=\"reset\"}"));
+            assertTrue(sum > 2.9e-6 && sum < 3.1e-6, "sum " + sum);
+        }
+    }
+
+    @Test
+    void mbeanReadsAreServedFromOneSnapshotPerCachePeriod() throws Exception {
+        Counter counter = LatencyMonitor.registry().registerCounter("exporter_test_events", "jmx");
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MetricsExporter.OBJECT_NAME);
+
+        try (MetricsExporter exporter = MetricsExporter.start(0)) {
+            counter.add(5);
+            // Registration already read every attribute once
+            awaitCacheExpiry();
+            long first = (Long) mbeans.getAttribute(name, "exporter_test_events.jmx");
+            counter.add(5);
+            long cached = (Long) mbeans.getAttribute(name, "exporter_test_events.jmx");
+
+            assertEquals(5, first);
+            assertEquals(first, cached);
+            awaitCacheExpiry();
+            assertEquals(first + 5, (Long) mbeans.getAttribute(name, "exporter_test_events.jmx"));
+        }
+    }
+}